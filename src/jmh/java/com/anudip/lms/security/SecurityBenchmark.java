@@ -0,0 +1,50 @@
+package com.anudip.lms.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the SHA-256 hashing and hex encoding in {@link Security}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityBenchmark {
+
+	@Param({ "8", "64", "1024" })
+	private int length;
+
+	private String input;
+
+	private byte[] hash;
+
+	@Setup
+	public void setUp() throws Exception {
+		input = "p".repeat(length);
+		hash = Security.getSHA(input);
+	}
+
+	@Benchmark
+	public String getSha256() throws Exception {
+		return Security.getSha256(input);
+	}
+
+	@Benchmark
+	public String toHexString() {
+		return Security.toHexString(hash);
+	}
+}
@@ -0,0 +1,85 @@
+package com.anudip.lms.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.anudip.lms.dto.BookSummary;
+
+/**
+ * Measures a scan of the catalogue snapshot on the calling thread against a
+ * scan split over a {@link CatalogueScanPool} of 1 to 8 threads, to find the
+ * catalogue size from which the parallel scan pays off: the
+ * {@code lms.search.scan.parallel-threshold}.
+ *
+ * {@code threads=0} is the sequential scan. Compare the rows of one keyword
+ * across sizes, e.g. with
+ * {@code -Djmh.args="ParallelScanBenchmark -p keyword=wizard"}. Only thread
+ * counts up to the number of processors of the machine are meaningful.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelScanBenchmark {
+
+	@Param({ "1000", "5000", "20000", "100000", "1000000" })
+	private int books;
+
+	@Param({ "0", "1", "2", "4", "8" })
+	private int threads;
+
+	/** A word in about one book in 250, and one no book contains. */
+	@Param({ "wizard", "qxjzvwq" })
+	private String keyword;
+
+	private final double[] weights = { 3.0, 2.0, 1.0 };
+
+	private CatalogueSnapshot snapshot;
+
+	private CatalogueScanPool pool;
+
+	@Setup
+	public void setUp() {
+		String[] words = SearchBenchmark.vocabulary(1000);
+		words[0] = "wizard";
+		Random random = new Random(42);
+		List<BookSummary> catalogue = new ArrayList<>(books);
+		for (int id = 1; id <= books; id++) {
+			StringBuilder description = new StringBuilder();
+			for (int i = 0; i < 12; i++) {
+				description.append(words[random.nextInt(words.length)]).append(' ');
+			}
+			catalogue.add(new BookSummary(id, words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)],
+					words[random.nextInt(words.length)], "Fiction", description.toString(), 100 + random.nextInt(900)));
+		}
+		snapshot = CatalogueSnapshot.of(catalogue);
+		pool = new CatalogueScanPool(Math.max(1, threads), threads == 0 ? Integer.MAX_VALUE : 0, 8192);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Benchmark
+	public List<BookMatch> scan() {
+		return pool.search(snapshot, keyword, weights, SubstringMatcher.SCALAR);
+	}
+}
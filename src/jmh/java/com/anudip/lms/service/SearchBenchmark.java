@@ -0,0 +1,172 @@
+package com.anudip.lms.service;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.repository.BookRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures {@link Search#searchBooks(String, int, int)} over synthetic
+ * catalogues of 1k to 1M books, for numeric and text keywords that do and do
+ * not match, against the inverted index and against a scan of the columnar
+ * catalogue snapshot.
+ *
+ * The books are served by an in-memory stand-in for {@link BookRepository}, so
+ * only the search itself is measured, not the database. Run one size with
+ * {@code -Djmh.args="SearchBenchmark -p books=1000 -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SearchBenchmark {
+
+	/** The kinds of keyword searched for. */
+	public enum Keyword {
+		/** The id of a book in the catalogue. */
+		NUMERIC_HIT,
+		/** An id no book has. */
+		NUMERIC_MISS,
+		/** A word that occurs in the catalogue. */
+		TEXT_HIT,
+		/** A word close to no word of the catalogue, which tries every expansion. */
+		TEXT_MISS
+	}
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	private int books;
+
+	@Param({ "NUMERIC_HIT", "NUMERIC_MISS", "TEXT_HIT", "TEXT_MISS" })
+	private Keyword keyword;
+
+	@Param({ "INDEX", "SCAN" })
+	private SearchStrategy strategy;
+
+	/** Whether the result cache is on, so repeated keywords skip the index. */
+	@Param({ "false", "true" })
+	private boolean cache;
+
+	private Search search;
+
+	private String query;
+
+	@Setup
+	public void setUp() {
+		String[] words = vocabulary(5000);
+		Random random = new Random(42);
+		Map<Integer, Book> catalogue = new HashMap<>();
+		for (int id = 1; id <= books; id++) {
+			Book book = new Book();
+			book.setId(id);
+			book.setName(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+			book.setAuthor(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+			StringBuilder description = new StringBuilder();
+			for (int i = 0; i < 12; i++) {
+				description.append(words[random.nextInt(words.length)]).append(' ');
+			}
+			book.setDescription(description.toString());
+			catalogue.put(id, book);
+		}
+
+		BookIndex index = new BookIndex();
+		index.setNameWeight(3.0);
+		index.setAuthorWeight(2.0);
+		index.setDescriptionWeight(1.0);
+
+		Catalogue scanned = new Catalogue();
+		scanned.setNameWeight(3.0);
+		scanned.setAuthorWeight(2.0);
+		scanned.setDescriptionWeight(1.0);
+		ReflectionTestUtils.setField(scanned, "scanPool", new CatalogueScanPool(0, 20000, 8192));
+		if (strategy == SearchStrategy.SCAN) {
+			List<BookSummary> summaries = new ArrayList<>();
+			catalogue.values().forEach(book -> summaries.add(BookSummary.of(book)));
+			scanned.rebuild(summaries);
+		} else {
+			index.rebuild(catalogue.values());
+		}
+
+		search = new Search();
+		ReflectionTestUtils.setField(search, "bookRepository", repository(catalogue));
+		ReflectionTestUtils.setField(search, "bookIndex", index);
+		ReflectionTestUtils.setField(search, "catalogue", scanned);
+		ReflectionTestUtils.setField(search, "resultCache",
+				new SearchResultCache(cache ? 1000 : 0, SearchResultCache.EvictionPolicy.LRU));
+		ReflectionTestUtils.setField(search, "strategy", strategy);
+		ReflectionTestUtils.setField(search, "meterRegistry", new SimpleMeterRegistry());
+
+		query = switch (keyword) {
+			case NUMERIC_HIT -> String.valueOf(books / 2);
+			case NUMERIC_MISS -> String.valueOf(books + 1);
+			case TEXT_HIT -> words[0];
+			case TEXT_MISS -> "qxjzvwq";
+		};
+	}
+
+	@Benchmark
+	public List<BookSummary> searchBooks() {
+		return search.searchBooks(query, 0, 20);
+	}
+
+	/**
+	 * Returns a repository that only supports the lookups made by {@link Search},
+	 * served from the given books.
+	 */
+	private static BookRepository repository(Map<Integer, Book> catalogue) {
+		return (BookRepository) Proxy.newProxyInstance(BookRepository.class.getClassLoader(),
+				new Class<?>[] { BookRepository.class }, (proxy, method, args) -> {
+					if (!method.getName().equals("findSummariesByIdIn")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					List<BookSummary> found = new ArrayList<>();
+					for (Object id : (Iterable<?>) args[0]) {
+						Book book = catalogue.get(id);
+						if (book != null) {
+							found.add(BookSummary.of(book));
+						}
+					}
+					return found;
+				});
+	}
+
+	/** Returns the given number of distinct pronounceable made-up words. */
+	static String[] vocabulary(int size) {
+		String[] consonants = { "b", "d", "f", "g", "k", "l", "m", "n", "p", "r", "s", "t", "v" };
+		String[] vowels = { "a", "e", "i", "o", "u" };
+		String[] words = new String[size];
+		for (int i = 0; i < size; i++) {
+			StringBuilder word = new StringBuilder();
+			int n = i;
+			do {
+				word.append(consonants[n % consonants.length]).append(vowels[(n / consonants.length) % vowels.length]);
+				n /= consonants.length * vowels.length;
+			} while (n > 0);
+			words[i] = word.append("n").toString();
+		}
+		return words;
+	}
+}
@@ -0,0 +1,105 @@
+package com.anudip.lms.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.anudip.lms.dto.BookSummary;
+
+/**
+ * Measures a sequential scan of the catalogue with the scalar and the vector
+ * {@link SubstringMatcher}, against filtering a list of books with a stream and
+ * {@link String#contains(CharSequence)} on the lower-cased fields.
+ *
+ * Names are capitalized, so the stream lower-cases every field of every book,
+ * while the snapshot searches the copy it normalized when it was built. The
+ * fork adds the Vector API module; {@code vector} measures the scalar matcher
+ * again if the platform cannot load it. Run one size with
+ * {@code -Djmh.args="SubstringMatcherBenchmark -p books=100000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "--add-modules=jdk.incubator.vector" })
+public class SubstringMatcherBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	private int books;
+
+	/** A word in about one book in 250, one no book contains, and two words. */
+	@Param({ "wizard", "qxjzvwq", "wizard tower" })
+	private String keyword;
+
+	private final double[] weights = { 3.0, 2.0, 1.0 };
+
+	private List<BookSummary> catalogue;
+
+	private CatalogueSnapshot snapshot;
+
+	private SubstringMatcher vector;
+
+	@Setup
+	public void setUp() {
+		String[] words = SearchBenchmark.vocabulary(1000);
+		words[0] = "wizard";
+		words[1] = "tower";
+		Random random = new Random(42);
+		catalogue = new ArrayList<>(books);
+		for (int id = 1; id <= books; id++) {
+			StringBuilder description = new StringBuilder();
+			for (int i = 0; i < 12; i++) {
+				description.append(words[random.nextInt(words.length)]).append(' ');
+			}
+			catalogue.add(new BookSummary(id,
+					capitalize(words[random.nextInt(words.length)]) + " " + capitalize(words[random.nextInt(words.length)]),
+					capitalize(words[random.nextInt(words.length)]), "Fiction", description.toString(),
+					100 + random.nextInt(900)));
+		}
+		snapshot = CatalogueSnapshot.of(catalogue);
+		vector = SubstringMatcher.named("vector");
+	}
+
+	@Benchmark
+	public List<BookMatch> scalar() {
+		return snapshot.search(keyword, weights, SubstringMatcher.SCALAR);
+	}
+
+	@Benchmark
+	public List<BookMatch> vector() {
+		return snapshot.search(keyword, weights, vector);
+	}
+
+	@Benchmark
+	public List<BookSummary> strings() {
+		Set<String> tokens = BookIndex.tokenize(keyword);
+		return catalogue.stream()
+				.filter(book -> tokens.stream().allMatch(token -> contains(book.name(), token)
+						|| contains(book.author(), token) || contains(book.description(), token)))
+				.toList();
+	}
+
+	private static boolean contains(String field, String token) {
+		return field != null && field.toLowerCase(Locale.ROOT).contains(token);
+	}
+
+	private static String capitalize(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+}
@@ -0,0 +1,54 @@
+package com.anudip.lms.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the selection of one page of ranked matches by
+ * {@link Search#top(List, int, int)}, the step that replaced merging and
+ * de-duplicating the per-field result lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopMatchesBenchmark {
+
+	@Param({ "100", "10000", "1000000" })
+	private int matches;
+
+	@Param({ "0", "1000" })
+	private int offset;
+
+	private List<BookMatch> all;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		all = new ArrayList<>(matches);
+		for (int id = 1; id <= matches; id++) {
+			all.add(new BookMatch(id, 1 + random.nextInt(7), random.nextDouble() * 20));
+		}
+	}
+
+	@Benchmark
+	public List<BookMatch> top() {
+		return Search.top(all, offset, 20);
+	}
+}
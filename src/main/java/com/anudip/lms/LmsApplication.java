@@ -2,7 +2,10 @@ package com.anudip.lms;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * The main class for the LMS application.
@@ -17,9 +20,15 @@ import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServic
  * exclude certain
  * auto-configuration classes. In this case, the
  * `UserDetailsServiceAutoConfiguration` class is
- * excluded.
+ * excluded. The R2DBC auto-configuration is excluded as well: the reactive
+ * read server sets up its own connection pool, and an R2DBC transaction
+ * manager would take the place of the JPA one.
+ * 
+ * Scheduling is enabled for the periodic checkpoints of the search catalogue.
  */
-@SpringBootApplication(exclude = { UserDetailsServiceAutoConfiguration.class })
+@EnableScheduling
+@SpringBootApplication(exclude = { UserDetailsServiceAutoConfiguration.class, R2dbcAutoConfiguration.class,
+        R2dbcTransactionManagerAutoConfiguration.class })
 public class LmsApplication {
 
     /**
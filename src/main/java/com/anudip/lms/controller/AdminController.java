@@ -0,0 +1,66 @@
+package com.anudip.lms.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.anudip.lms.dto.CacheRegionStats;
+import com.anudip.lms.dto.SqlProfileStats;
+import com.anudip.lms.metrics.SqlProfiler;
+import com.anudip.lms.service.CacheStatistics;
+
+/**
+ * RestController for operational requests such as cache and SQL statistics.
+ */
+@RestController
+public class AdminController {
+
+    /**
+     * The CacheStatistics instance.
+     * This is used to report the counters of the second-level cache.
+     */
+    @Autowired
+    private CacheStatistics cacheStatistics;
+
+    /**
+     * The SqlProfiler instance.
+     * This is used to report the handlers that run the most SQL.
+     */
+    @Autowired
+    private SqlProfiler sqlProfiler;
+
+    /**
+     * Returns the hit, miss and eviction counters of every second-level cache
+     * region.
+     *
+     * @return the counters of each cache region
+     */
+    @GetMapping("/admin/cache")
+    public List<CacheRegionStats> getCacheStats() {
+        return cacheStatistics.getRegionStats();
+    }
+
+    /**
+     * Returns the handlers whose profiled requests spent the most time executing
+     * SQL statements, with their statement and row counts.
+     *
+     * @param limit the maximum number of handlers to return
+     * @return the totals of the top handlers, most JDBC time first
+     */
+    @GetMapping("/admin/sql-profile")
+    public List<SqlProfileStats> getSqlProfile(@RequestParam(defaultValue = "10") int limit) {
+        return sqlProfiler.topOffenders(limit);
+    }
+
+    /**
+     * Drops the SQL totals of every handler, to start measuring afresh.
+     */
+    @DeleteMapping("/admin/sql-profile")
+    public void resetSqlProfile() {
+        sqlProfiler.reset();
+    }
+}
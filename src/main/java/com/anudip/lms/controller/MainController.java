@@ -1,9 +1,16 @@
 package com.anudip.lms.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,13 +18,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.anudip.lms.daoImpl.BookDaoImpl;
 import com.anudip.lms.daoImpl.CustomerDaoImpl;
+import com.anudip.lms.dto.BookPage;
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.dto.CheckoutItem;
+import com.anudip.lms.dto.CheckoutItemResult;
+import com.anudip.lms.dto.CheckoutResult;
+import com.anudip.lms.dto.ImportResult;
+import com.anudip.lms.dto.PageToken;
+import com.anudip.lms.dto.SearchHit;
 import com.anudip.lms.model.Book;
 import com.anudip.lms.model.Customer;
+import com.anudip.lms.service.BulkImport;
 import com.anudip.lms.service.Search;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * RestController for handling book related requests.
@@ -46,6 +67,51 @@ public class MainController {
     @Autowired
     private Search search;
 
+    /**
+     * The BulkImport instance.
+     * This is used to add many books or customers in one request.
+     */
+    @Autowired
+    private BulkImport bulkImport;
+
+    /**
+     * The ObjectMapper instance.
+     * This is used to write streamed responses one book at a time.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * The number of books per page when the client does not ask for a size.
+     */
+    @Value("${lms.books.page-size:100}")
+    private int defaultPageSize;
+
+    /**
+     * The largest number of books a client may request per page.
+     */
+    @Value("${lms.books.max-page-size:1000}")
+    private int maxPageSize;
+
+    /**
+     * The largest number of items a client may check out in one request.
+     */
+    @Value("${lms.checkout.max-items:500}")
+    private int maxCheckoutItems;
+
+    /**
+     * The number of search results returned when the client does not ask for a
+     * limit.
+     */
+    @Value("${lms.search.default-limit:20}")
+    private int defaultSearchLimit;
+
+    /**
+     * The largest number of search results a client may request at once.
+     */
+    @Value("${lms.search.max-limit:100}")
+    private int maxSearchLimit;
+
     /**
      * Handles request for the home page of the application.
      * 
@@ -77,6 +143,41 @@ public class MainController {
         customerDao.addCustomer(customer);
     }
 
+    /**
+     * Handles request to add many books at once.
+     * 
+     * The body is either a JSON array of books or newline-delimited JSON with one
+     * book per line, and is read as a stream, so it may be arbitrarily large.
+     * 
+     * @param body the books to be added
+     * @return the number of books received and added, and the books that could
+     *         not be added
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/addbooks", consumes = { MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE })
+    public ImportResult addBooks(InputStream body) throws IOException {
+        return bulkImport.importBooks(body);
+    }
+
+    /**
+     * Handles request to add many customers at once.
+     * 
+     * The body is either a JSON array of customers or newline-delimited JSON with
+     * one customer per line, and is read as a stream, so it may be arbitrarily
+     * large.
+     * 
+     * @param body the customers to be added
+     * @return the number of customers received and added, and the customers that
+     *         could not be added
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/addcustomers", consumes = { MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE })
+    public ImportResult addCustomers(InputStream body) throws IOException {
+        return bulkImport.importCustomers(body);
+    }
+
     /**
      * Handles request to delete a book.
      * 
@@ -124,59 +225,210 @@ public class MainController {
     /**
      * Returns a list of all books.
      *
+     * @param borrowers whether to list the customers who borrowed each book
      * @return a list of all books
      */
     @GetMapping("/getallbook")
-    public List<Book> getAllBook() {
-        return bookDao.getAllBooks();
+    public List<BookSummary> getAllBook(@RequestParam(defaultValue = "false") boolean borrowers) {
+        return bookDao.getAllBooks(borrowers);
     }
 
     /**
-     * Returns a list of books that match the given keyword.
+     * Streams all books as newline-delimited JSON, one book per line.
+     * 
+     * The books are read and written one keyset page at a time, so memory use
+     * stays flat no matter how many books are in the catalogue. This variant is
+     * selected by requesting the {@code application/x-ndjson} media type.
      *
-     * @param keyword the keyword to search for
+     * @return the streamed books
+     */
+    @GetMapping(value = "/getallbook", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBook() {
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            bookDao.forEachPage(defaultPageSize, books -> {
+                try {
+                    for (BookSummary book : books) {
+                        generator.writeObject(book);
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeRaw('\n');
+            generator.close();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Returns one page of books in ascending id order.
+     * Returns 400 Bad Request if the continuation token is malformed.
+     *
+     * @param token the continuation token returned with the previous page, or
+     *              null for the first page
+     * @param size      the number of books per page, capped at the configured
+     *                  maximum
+     * @param borrowers whether to list the customers who borrowed each book
+     * @return the page of books and the token for the next page
+     */
+    @GetMapping("/getbooks")
+    public ResponseEntity<BookPage> getBooks(@RequestParam(required = false) String token,
+            @RequestParam(required = false) Integer size, @RequestParam(defaultValue = "false") boolean borrowers) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+
+        // check the token here, as the repository translates the exception the
+        // DAO throws for it into a data access exception
+        if (token != null) {
+            try {
+                PageToken.decode(token);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(bookDao.getBooks(token, pageSize, borrowers));
+    }
+
+    /**
+     * Returns the books that match the given keyword, most relevant first.
+     *
+     * Every match is returned unless the client asks for a page: given an offset
+     * or a limit, only that page is returned, of the configured default size if
+     * there is no limit.
+     *
+     * @param keyword   the keyword to search for
+     * @param offset    the number of results to skip, or null
+     * @param limit     the maximum number of results, capped at the configured
+     *                  maximum, or null
+     * @param borrowers whether to list the customers who borrowed each book
      * @return a list of books that match the given keyword
      */
     @GetMapping("/search/{keyword}")
-    public List<Book> searchBook(@PathVariable String keyword) {
-        return search.searchBooks(keyword);
+    public List<BookSummary> searchBook(@PathVariable String keyword, @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit, @RequestParam(defaultValue = "false") boolean borrowers) {
+        List<BookSummary> books = offset == null && limit == null ? search.searchBooks(keyword)
+                : search.searchBooks(keyword, offset == null ? 0 : Math.max(0, offset), searchLimit(limit));
+        return borrowers && books != null ? bookDao.withBorrowers(books) : books;
+    }
+
+    /**
+     * Returns a page of the books that match the given keyword, most relevant
+     * first, together with the fields the keyword matched in and their scores.
+     *
+     * @param keyword the keyword to search for
+     * @param offset  the number of results to skip
+     * @param limit     the maximum number of results, capped at the configured
+     *                  maximum
+     * @param borrowers whether to list the customers who borrowed each book
+     * @return the matching books and their matched fields
+     */
+    @GetMapping("/search/{keyword}/matches")
+    public List<SearchHit> searchMatches(@PathVariable String keyword, @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer limit, @RequestParam(defaultValue = "false") boolean borrowers) {
+        List<SearchHit> hits = search.match(keyword, Math.max(0, offset), searchLimit(limit));
+        if (!borrowers || hits.isEmpty()) {
+            return hits;
+        }
+
+        // read the borrowers of the whole page at once, then put them in the hits
+        List<BookSummary> books = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            books.add(hit.book());
+        }
+        books = bookDao.withBorrowers(books);
+        List<SearchHit> withBorrowers = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            SearchHit hit = hits.get(i);
+            withBorrowers.add(new SearchHit(books.get(i), hit.matchedFields(), hit.score()));
+        }
+        return withBorrowers;
+    }
+
+    /**
+     * Returns completions of the last word of the given prefix, for
+     * autocompletion as the user types.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions, capped at the configured
+     *               maximum
+     * @return the suggested search texts, most common first
+     */
+    @GetMapping("/suggest/{prefix}")
+    public List<String> suggest(@PathVariable String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return search.suggest(prefix, searchLimit(limit));
+    }
+
+    /**
+     * Returns the number of search results to return for the requested limit.
+     *
+     * @param limit the limit requested by the client, or null
+     * @return the limit to apply
+     */
+    private int searchLimit(Integer limit) {
+        return limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxSearchLimit));
     }
 
     /**
      * Adds the given customer to the book with the given book ID.
-     * Returns 200 OK if the customer was successfully added,
-     * or 400 Bad Request if the operation failed.
+     * Returns 200 OK if the customer was successfully added, 409 Conflict if
+     * the customer had already been added, or 404 Not Found if the book or the
+     * customer does not exist. The body names the outcome.
      *
      * @param bookid     the ID of the book to add the customer to
      * @param customerid the ID of the customer to be added
-     * @return 200 OK if the customer was successfully added, 400 Bad Request
-     *         otherwise
+     * @return the outcome of the checkout with the matching status
      */
     @PutMapping("/addcustomertobook{bookid}/customerid{customerid}")
-    public ResponseEntity<Void> addCustomerToBook(@PathVariable int bookid, @PathVariable UUID customerid) {
-        if (bookDao.addCustomer(bookid, customerid)) {
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<CheckoutResult> addCustomerToBook(@PathVariable int bookid, @PathVariable UUID customerid) {
+        return checkoutResponse(bookDao.addCustomer(bookid, customerid));
     }
 
     /**
      * Adds the given book to the customer with the given customer ID.
-     * Returns 200 OK if the book was successfully added,
-     * or 400 Bad Request if the operation failed.
+     * Returns 200 OK if the book was successfully added, 409 Conflict if the
+     * customer already had the book, or 404 Not Found if the book or the
+     * customer does not exist. The body names the outcome.
      *
      * @param customerid the ID of the customer to add the book to
      * @param bookid     the ID of the book to be added
-     * @return 200 OK if the book was successfully added, 400 Bad Request otherwise
+     * @return the outcome of the checkout with the matching status
      */
     @PutMapping("/addbooktocustomer{customerid}/customerid{bookid}")
-    public ResponseEntity<Void> addBookToCustomer(@PathVariable int customerid, @PathVariable UUID bookid) {
-        if (customerDao.addBook(bookid, customerid)) {
-            return ResponseEntity.ok().build();
-        } else {
+    public ResponseEntity<CheckoutResult> addBookToCustomer(@PathVariable int customerid, @PathVariable UUID bookid) {
+        return checkoutResponse(customerDao.addBook(bookid, customerid));
+    }
+
+    /**
+     * Checks out a batch of books to their customers in one transaction.
+     * Returns 200 OK with the outcome of each item, in the order of the items,
+     * or 400 Bad Request if there are more items than allowed.
+     *
+     * @param items the books to check out and their customers
+     * @return the outcome of each item
+     */
+    @PutMapping("/checkout")
+    public ResponseEntity<List<CheckoutItemResult>> checkout(@RequestBody List<CheckoutItem> items) {
+        if (items.size() > maxCheckoutItems) {
             return ResponseEntity.badRequest().build();
         }
+        return ResponseEntity.ok(customerDao.checkout(items));
+    }
+
+    /**
+     * Maps the outcome of a checkout to a response.
+     *
+     * @param result the outcome of the checkout
+     * @return the response carrying the outcome
+     */
+    private ResponseEntity<CheckoutResult> checkoutResponse(CheckoutResult result) {
+        HttpStatus status = switch (result) {
+            case LINKED -> HttpStatus.OK;
+            case ALREADY_LINKED -> HttpStatus.CONFLICT;
+            case MISSING_BOOK, MISSING_CUSTOMER -> HttpStatus.NOT_FOUND;
+        };
+        return ResponseEntity.status(status).body(result);
     }
 
 }
\ No newline at end of file
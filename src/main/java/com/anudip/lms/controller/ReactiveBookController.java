@@ -0,0 +1,176 @@
+package com.anudip.lms.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.dto.SearchHit;
+import com.anudip.lms.repository.ReactiveBookRepository;
+import com.anudip.lms.service.BookMatch;
+import com.anudip.lms.service.Search;
+import com.anudip.lms.service.SearchStrategy;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking versions of the read requests of {@link MainController}, served
+ * by the {@link ReactiveServer}.
+ * 
+ * Books are streamed to the client as they are read from the database, at the
+ * pace the client consumes them: as newline-delimited JSON if the client
+ * accepts it, otherwise as a JSON array written element by element.
+ * 
+ * @since v1.1
+ */
+@Component
+@ConditionalOnProperty(name = "lms.reactive.enabled", havingValue = "true")
+public class ReactiveBookController {
+
+    /**
+     * The ReactiveBookRepository instance.
+     * This is used to read books without blocking.
+     */
+    @Autowired
+    private ReactiveBookRepository bookRepository;
+
+    /**
+     * The Search instance.
+     * This is used to rank books against a keyword in the in-memory index.
+     */
+    @Autowired
+    private Search search;
+
+    /**
+     * The number of search results on a page when the client gives an offset
+     * but no limit.
+     */
+    @Value("${lms.search.default-limit:20}")
+    private int defaultSearchLimit;
+
+    /**
+     * The largest number of search results a client may ask for.
+     */
+    @Value("${lms.search.max-limit:100}")
+    private int maxSearchLimit;
+
+    /**
+     * Returns the routes of the reactive read requests. The {@link ReactiveServer}
+     * only lets requests with the HTTP Basic credentials of an admin through.
+     * 
+     * @return the routes
+     */
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/getallbook", request -> respond(request, bookRepository.findAll()))
+                .GET("/search/{keyword}", this::searchBook)
+                .build();
+    }
+
+    /**
+     * Handles request to search for books using a keyword. Like
+     * {@link MainController#searchBook}, every match is returned unless the
+     * client gives an offset or a limit, and then only that page.
+     * Returns 400 Bad Request if the offset or limit is not a number.
+     * 
+     * @param request the request with the keyword and the optional offset and
+     *                limit
+     * @return the matching books, most relevant first
+     */
+    private Mono<ServerResponse> searchBook(ServerRequest request) {
+        Integer offset;
+        Integer limit;
+        try {
+            offset = request.queryParam("offset").map(Integer::valueOf).orElse(null);
+            limit = request.queryParam("limit").map(Integer::valueOf).orElse(null);
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().build();
+        }
+
+        String keyword = request.pathVariable("keyword");
+        if (offset == null && limit == null) {
+            return respond(request, search(keyword, 0, Integer.MAX_VALUE));
+        }
+        return respond(request, search(keyword, offset == null ? 0 : Math.max(0, offset), searchLimit(limit)));
+    }
+
+    /**
+     * Searches for books matching the given keyword, using the same strategy as
+     * {@link Search}. Only searches pushed down to the database read the books
+     * through the reactive repository the whole way; the in-memory ranking and
+     * the catalogue scan run on the bounded elastic scheduler.
+     */
+    private Flux<BookSummary> search(String keyword, int offset, int limit) {
+        if (search.strategy() == SearchStrategy.DATABASE) {
+            if (Search.isNumeric(keyword)) {
+                return offset > 0 ? Flux.empty() : bookRepository.findById(Integer.parseInt(keyword)).flux();
+            }
+            String query = Search.fullTextQuery(keyword);
+            return query == null ? Flux.empty() : bookRepository.searchFullText(query, offset, limit);
+        }
+        if (search.strategy() == SearchStrategy.SCAN) {
+            // the catalogue snapshot has the books too, so only scan it, off the
+            // event loop as a scan may wait for its chunks
+            return Mono.fromCallable(() -> search.match(keyword, offset, limit))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapIterable(hits -> hits)
+                    .map(SearchHit::book);
+        }
+
+        // rank in memory off the event loop, as it takes the index and cache
+        // locks, then load the page and put it back in rank order
+        return Mono.fromCallable(() -> search.rank(keyword, offset, limit))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(page -> {
+                    List<Integer> ids = new ArrayList<>(page.size());
+                    for (BookMatch match : page) {
+                        ids.add(match.bookId());
+                    }
+                    return bookRepository.findAllById(ids)
+                            .collectMap(BookSummary::id)
+                            .flatMapIterable(booksById -> inRankOrder(page, booksById));
+                });
+    }
+
+    private static List<BookSummary> inRankOrder(List<BookMatch> page, Map<Integer, BookSummary> booksById) {
+        // books removed since they were matched are skipped
+        List<BookSummary> books = new ArrayList<>(page.size());
+        for (BookMatch match : page) {
+            BookSummary book = booksById.get(match.bookId());
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Streams the given books in the format the client accepts.
+     */
+    private static Mono<ServerResponse> respond(ServerRequest request, Flux<BookSummary> books) {
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok().contentType(contentType).body(books, BookSummary.class);
+    }
+
+    /**
+     * Returns the number of search results to return for the given requested
+     * limit.
+     */
+    private int searchLimit(Integer limit) {
+        return limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxSearchLimit));
+    }
+}
@@ -0,0 +1,87 @@
+package com.anudip.lms.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import com.anudip.lms.security.SecurityConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * A Netty server for the non-blocking read requests of
+ * {@link ReactiveBookController}, running next to the servlet container that
+ * serves {@link MainController}.
+ * 
+ * A few event-loop threads serve every connection, so slow clients do not
+ * hold a thread each. Requests are authenticated by the reactive security
+ * filter chain of {@link SecurityConfiguration}. The server is only started if
+ * {@code lms.reactive.enabled} is true, on port {@code lms.reactive.port}.
+ * 
+ * @since v1.1
+ */
+@Component
+@ConditionalOnProperty(name = "lms.reactive.enabled", havingValue = "true")
+public class ReactiveServer implements SmartLifecycle {
+
+    @Autowired
+    private ReactiveBookController controller;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SecurityWebFilterChain securityFilterChain;
+
+    @Value("${lms.reactive.port:8081}")
+    private int port;
+
+    private DisposableServer server;
+
+    @Override
+    public synchronized void start() {
+        // write JSON with the application's ObjectMapper, as the servlet side does
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .webFilter(new WebFilterChainProxy(securityFilterChain))
+                .build();
+        HttpHandler handler = RouterFunctions.toHttpHandler(controller.routes(), strategies);
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(handler))
+                .bindNow();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * 
+     * @return the port, or -1 if the server is not running
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.port();
+    }
+}
@@ -2,7 +2,11 @@ package com.anudip.lms.dao;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import com.anudip.lms.dto.BookPage;
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.dto.CheckoutResult;
 import com.anudip.lms.model.Book;
 
 /**
@@ -24,6 +28,15 @@ public interface BookDao {
      */
     void addBook(Book book);
 
+    /**
+     * Adds the given books to the database in a single transaction and batch of
+     * inserts. Either all of the books are added or, if any of them cannot be
+     * added, none of them are, and the books are left without ids.
+     * 
+     * @param books the books to add
+     */
+    void addBooks(List<Book> books);
+
     /**
      * Removes a book from the database by its ID.
      * 
@@ -32,11 +45,46 @@ public interface BookDao {
     void removeBook(int id);
 
     /**
-     * Returns a list of all books in the database.
+     * Returns the summaries of all books in the database, in ascending id order.
+     * 
+     * @param withBorrowers whether to list the customers who borrowed each book
+     * @return the summaries of all books in the database
+     */
+    List<BookSummary> getAllBooks(boolean withBorrowers);
+
+    /**
+     * Returns one page of book summaries in ascending id order.
+     * 
+     * @param continuationToken the token returned with the previous page, or null
+     *                          for the first page
+     * @param pageSize          the maximum number of books on the page
+     * @param withBorrowers     whether to list the customers who borrowed each
+     *                          book
+     * @return the page of books together with the token for the next page
+     * @throws IllegalArgumentException if the continuation token is malformed
+     */
+    BookPage getBooks(String continuationToken, int pageSize, boolean withBorrowers);
+
+    /**
+     * Returns the given book summaries with the customers who borrowed each book,
+     * read in one query for the whole list.
+     * 
+     * @param books the summaries of the books
+     * @return the summaries in the same order, each listing its customers
+     */
+    List<BookSummary> withBorrowers(List<BookSummary> books);
+
+    /**
+     * Passes the summary of every book in the database to the given action, one
+     * page at a time.
+     * 
+     * Only one page of books is held in memory at any time, so this can be used
+     * to stream the whole catalogue regardless of its size.
      * 
-     * @return a list of all books in the database
+     * @param pageSize the number of books loaded per page
+     * @param action   the action to perform on each page of books
      */
-    List<Book> getAllBooks();
+    void forEachPage(int pageSize, Consumer<List<BookSummary>> action);
 
     /**
      * Updates a book in the database.
@@ -50,9 +98,9 @@ public interface BookDao {
      * Returns a list of books that match the given search keyword.
      * 
      * @param keyWord the search keyword
-     * @return a list of books that match the given search keyword
+     * @return the summaries of the books that match the given search keyword
      */
-    List<Book> search(String keyWord);
+    List<BookSummary> search(String keyWord);
 
     /**
      * Adds a customer to the list of customers who have checked out a specific
@@ -60,9 +108,9 @@ public interface BookDao {
      * 
      * @param bookId     the ID of the book the customer has checked out
      * @param customerId the UUID of the customer
-     * @return true if the customer was successfully added, false if the customer
-     *         was already in the list or any other error like invalid book or
-     *         customer id
+     * @return {@link CheckoutResult#LINKED} if the customer was added, otherwise
+     *         whether the customer was already in the list or the book or
+     *         customer does not exist
      */
-    boolean addCustomer(int bookId, UUID customerId);
+    CheckoutResult addCustomer(int bookId, UUID customerId);
 }
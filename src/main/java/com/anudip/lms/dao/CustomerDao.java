@@ -1,7 +1,11 @@
 package com.anudip.lms.dao;
 
+import java.util.List;
 import java.util.UUID;
 
+import com.anudip.lms.dto.CheckoutItem;
+import com.anudip.lms.dto.CheckoutItemResult;
+import com.anudip.lms.dto.CheckoutResult;
 import com.anudip.lms.model.Customer;
 
 /**
@@ -26,6 +30,16 @@ public interface CustomerDao {
      */
     void addCustomer(Customer customer);
 
+    /**
+     * 
+     * Adds the given customers to the database in a single transaction and batch
+     * of inserts. Either all of the customers are added or, if any of them cannot
+     * be added, none of them are, and the customers are left without ids.
+     * 
+     * @param customers the customers to add
+     */
+    void addCustomers(List<Customer> customers);
+
     /**
      * 
      * Removes a customer from the database by its ID.
@@ -49,8 +63,18 @@ public interface CustomerDao {
      * 
      * @param customerId the UUID of the customer
      * @param bookId     the ID of the book to add
-     * @return true if the book was added to the customer's list, false if the
-     *         customer already had the book
+     * @return {@link CheckoutResult#LINKED} if the book was added to the
+     *         customer's list, otherwise whether the customer already had the
+     *         book or the customer or book does not exist
+     */
+    CheckoutResult addBook(UUID customerId, int bookId);
+
+    /**
+     * 
+     * Checks out a batch of books to their customers in one transaction.
+     * 
+     * @param items the books to check out and their customers
+     * @return the outcome of each item, in the order of the items
      */
-    boolean addBook(UUID customerId, int bookId);
+    List<CheckoutItemResult> checkout(List<CheckoutItem> items);
 }
@@ -1,18 +1,38 @@
 package com.anudip.lms.daoImpl;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.anudip.lms.dao.BookDao;
+import com.anudip.lms.dto.BookBorrower;
+import com.anudip.lms.dto.BookPage;
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.dto.CheckoutResult;
+import com.anudip.lms.dto.CustomerSummary;
+import com.anudip.lms.dto.PageToken;
 import com.anudip.lms.model.Book;
+import com.anudip.lms.model.BookTombstone;
 import com.anudip.lms.model.Customer;
 import com.anudip.lms.repository.BookRepository;
+import com.anudip.lms.repository.BookTombstoneRepository;
 import com.anudip.lms.repository.CustomerRepository;
 import com.anudip.lms.service.Search;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
 /**
  * 
  * This class is responsible for the database operations related to the
@@ -46,6 +66,13 @@ public class BookDaoImpl implements BookDao {
     @Autowired
     private CustomerRepository customerRepository;
 
+    /**
+     * 
+     * The {@link BookTombstoneRepository} instance used to record removed books.
+     */
+    @Autowired
+    private BookTombstoneRepository bookTombstoneRepository;
+
     /**
      * 
      * The {@link Search} service instance for searching books.
@@ -55,33 +82,178 @@ public class BookDaoImpl implements BookDao {
 
     /**
      * 
-     * This method is used to save a new {@link Book} in the database.
+     * The {@link EntityManager} used to insert batches of new books and detach
+     * them once they are committed.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 
+     * The {@link TransactionTemplate} used to commit a batch of new books before
+     * they are added to the search index.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 
+     * This method is used to save a new {@link Book} in the database and add it
+     * to the search index.
      * 
      * @param book the {@link Book} object to be saved in the database
      */
     @Override
     public void addBook(Book book) {
-        bookRepository.save(book);
+        search.onBookSaved(bookRepository.save(book));
     }
 
     /**
-     * This method is used to remove a book from the database.
+     * 
+     * This method is used to insert a batch of new {@link Book}s in one
+     * transaction and add them to the search index once it has committed. The
+     * persistence context is cleared afterwards so that a long import does not
+     * keep every imported book in memory.
+     * 
+     * If the transaction rolls back, the ids the books were given from the
+     * sequence are taken back off them, so that they are new books again and
+     * can be saved once more, e.g. one by one.
+     * 
+     * @param books the {@link Book} objects to be saved in the database
+     */
+    @Override
+    public void addBooks(List<Book> books) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                books.forEach(entityManager::persist);
+                entityManager.flush();
+            });
+        } catch (RuntimeException e) {
+            books.forEach(book -> book.setId(0));
+            throw e;
+        } finally {
+            entityManager.clear();
+        }
+        books.forEach(search::onBookSaved);
+    }
+
+    /**
+     * This method is used to remove a book from the database and the search
+     * index. A tombstone is recorded in the same transaction, so that a persisted
+     * copy of the catalogue learns of the removal; none is recorded if there was
+     * no such book.
      * 
      * @param id ID of the book to be removed from the database.
      */
     @Override
     public void removeBook(int id) {
-        bookRepository.deleteById(id);
+        boolean removed = transactionTemplate.execute(status -> bookRepository.findById(id).map(book -> {
+            bookRepository.delete(book);
+            bookTombstoneRepository.save(new BookTombstone(id, Instant.now()));
+            return true;
+        }).orElse(false));
+        if (removed) {
+            search.onBookRemoved(id);
+        }
     }
 
     /**
-     * This method is used to retrieve all books from the database.
+     * This method is used to retrieve the summaries of all books from the
+     * database. The book columns are read in one query, and the borrowers, if
+     * asked for, in a second one, however many books there are.
      * 
-     * @return List of all the books in the database.
+     * @param withBorrowers Whether to list the customers who borrowed each book.
+     * 
+     * @return List of the summaries of all the books in the database.
      */
     @Override
-    public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+    public List<BookSummary> getAllBooks(boolean withBorrowers) {
+        List<BookSummary> books = bookRepository.findAllSummaries();
+        return withBorrowers ? attachBorrowers(books, bookRepository.findAllBorrowers()) : books;
+    }
+
+    /**
+     * This method is used to retrieve one page of books from the database using a
+     * keyset seek on the book id.
+     * 
+     * @param continuationToken Token returned with the previous page, or null for
+     *                          the first page.
+     * @param pageSize          Maximum number of books on the page.
+     * @param withBorrowers     Whether to list the customers who borrowed each
+     *                          book.
+     * 
+     * @return The page of books and the token for the next page.
+     */
+    @Override
+    public BookPage getBooks(String continuationToken, int pageSize, boolean withBorrowers) {
+        int afterId = continuationToken == null ? Integer.MIN_VALUE : PageToken.decode(continuationToken);
+        List<BookSummary> books = bookRepository.findSummariesAfter(afterId, PageRequest.ofSize(pageSize));
+
+        // a short page means there is nothing left to fetch
+        String next = books.size() < pageSize ? null : PageToken.encode(books.get(books.size() - 1).id());
+        return new BookPage(withBorrowers ? withBorrowers(books) : books, next);
+    }
+
+    /**
+     * This method is used to add the customers who borrowed each of the given
+     * books, read in one query for all of them.
+     * 
+     * @param books Summaries of the books.
+     * 
+     * @return The summaries in the same order, each listing its customers.
+     */
+    @Override
+    public List<BookSummary> withBorrowers(List<BookSummary> books) {
+        if (books.isEmpty()) {
+            return books;
+        }
+        List<Integer> ids = new ArrayList<>(books.size());
+        for (BookSummary book : books) {
+            ids.add(book.id());
+        }
+        return attachBorrowers(books, bookRepository.findBorrowersByBookIdIn(ids));
+    }
+
+    /**
+     * Lists the given borrowers in the summaries of the books they borrowed.
+     * 
+     * @param books     Summaries of the books.
+     * @param borrowers Rows of the books and the customers who borrowed them.
+     * 
+     * @return The summaries in the same order, each listing its customers.
+     */
+    private static List<BookSummary> attachBorrowers(List<BookSummary> books, List<BookBorrower> borrowers) {
+        Map<Integer, List<CustomerSummary>> customersByBook = new HashMap<>();
+        for (BookBorrower borrower : borrowers) {
+            customersByBook.computeIfAbsent(borrower.bookId(), id -> new ArrayList<>()).add(borrower.customer());
+        }
+        List<BookSummary> result = new ArrayList<>(books.size());
+        for (BookSummary book : books) {
+            result.add(book.withCustomers(customersByBook.getOrDefault(book.id(), Collections.emptyList())));
+        }
+        return result;
+    }
+
+    /**
+     * This method is used to walk over the summaries of all books in the database
+     * one keyset page at a time. Summaries are not managed entities, so memory
+     * use does not grow with the size of the catalogue.
+     * 
+     * @param pageSize Number of books loaded per page.
+     * @param action   Action performed on each page of books.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachPage(int pageSize, Consumer<List<BookSummary>> action) {
+        int afterId = Integer.MIN_VALUE;
+        List<BookSummary> books;
+        do {
+            books = bookRepository.findSummariesAfter(afterId, PageRequest.ofSize(pageSize));
+            if (!books.isEmpty()) {
+                action.accept(books);
+                afterId = books.get(books.size() - 1).id();
+            }
+        } while (books.size() == pageSize);
     }
 
     /**
@@ -99,7 +271,7 @@ public class BookDaoImpl implements BookDao {
             existingBook.setCategory(newBook.getCategory());
             existingBook.setDescription(newBook.getDescription());
             existingBook.setPrice(newBook.getPrice());
-            bookRepository.save(existingBook);
+            search.onBookSaved(bookRepository.save(existingBook));
         }
     }
 
@@ -108,10 +280,10 @@ public class BookDaoImpl implements BookDao {
      * 
      * @param keyWord Keyword to be used for searching the books.
      * 
-     * @return List of books matching the search keyword.
+     * @return List of the summaries of the books matching the search keyword.
      */
     @Override
-    public List<Book> search(String keyWord) {
+    public List<BookSummary> search(String keyWord) {
         return search.searchBooks(keyWord);
     }
 
@@ -120,21 +292,15 @@ public class BookDaoImpl implements BookDao {
      * Adds a customer to the list of customers who have checked out a specific
      * book.
      * 
+     * The link is inserted straight into the join table, without loading the
+     * book's existing customers.
+     * 
      * @param bookId     the ID of the book the customer has checked out
      * @param customerId the UUID of the customer
-     * @return true if the customer was successfully added, false if the customer or
-     *         book could not be found in the repository
+     * @return the outcome of the checkout
      */
     @Override
-    public boolean addCustomer(int bookId, UUID customerId) {
-        Book book = bookRepository.findById(bookId).orElse(null);
-        Customer customer = customerRepository.findById(customerId).orElse(null);
-        if (book != null && customer != null) {
-            book.getCustomers().add(customer);
-            bookRepository.save(book);
-            return true;
-        } else {
-            return false;
-        }
+    public CheckoutResult addCustomer(int bookId, UUID customerId) {
+        return customerRepository.link(customerId, bookId);
     }
 }
\ No newline at end of file
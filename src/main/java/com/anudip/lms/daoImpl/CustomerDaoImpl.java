@@ -1,16 +1,24 @@
 package com.anudip.lms.daoImpl;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.anudip.lms.dao.CustomerDao;
+import com.anudip.lms.dto.CheckoutItem;
+import com.anudip.lms.dto.CheckoutItemResult;
+import com.anudip.lms.dto.CheckoutResult;
 import com.anudip.lms.model.Book;
 import com.anudip.lms.model.Customer;
 import com.anudip.lms.repository.BookRepository;
 import com.anudip.lms.repository.CustomerRepository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
 /**
  * 
  * CustomerDaoImpl is an implementation of the CustomerDao interface that
@@ -41,6 +49,21 @@ public class CustomerDaoImpl implements CustomerDao {
     @Autowired
     private BookRepository bookRepository;
 
+    /**
+     * 
+     * The {@link EntityManager} used to insert customers in batches.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 
+     * The {@link TransactionTemplate} used to insert each batch of customers in
+     * its own transaction.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * 
      * Constructs a new CustomerDaoImpl object and sets the customerRepository
@@ -64,6 +87,33 @@ public class CustomerDaoImpl implements CustomerDao {
         customerRepository.save(customer);
     }
 
+    /**
+     * 
+     * Inserts the provided customers in one transaction, then clears the
+     * persistence context so that a long import does not keep every imported
+     * customer in memory.
+     * 
+     * If the transaction rolls back, the UUIDs the customers were given are
+     * taken back off them, so that they are new customers again and can be
+     * saved once more, e.g. one by one.
+     * 
+     * @param customers the Customer objects to save
+     */
+    @Override
+    public void addCustomers(List<Customer> customers) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                customers.forEach(entityManager::persist);
+                entityManager.flush();
+            });
+        } catch (RuntimeException e) {
+            customers.forEach(customer -> customer.setId(null));
+            throw e;
+        } finally {
+            entityManager.clear();
+        }
+    }
+
     /**
      * 
      * Removes the customer with the provided id from the repository.
@@ -97,26 +147,31 @@ public class CustomerDaoImpl implements CustomerDao {
     /**
      * 
      * Adds a book to the list of books checked out by a customer.
+     * The link is inserted straight into the join table, without loading the
+     * customer's existing books.
      * 
      * @param customerId the UUID of the customer
      * 
      * @param bookId     the ID of the book to add
      * 
-     * @return true if the book was added to the customer's list, false if the
-     *         customer or book could not be found in the repository
+     * @return the outcome of the checkout
      */
     @Override
-    public boolean addBook(UUID customerId, int bookId) {
-        Customer customer = customerRepository.findById(customerId).orElse(null);
-        Book book = bookRepository.findById(bookId).orElse(null);
-
-        if (customer != null && book != null) {
-            customer.getBooks().add(book);
-            customerRepository.save(customer);
-            return true;
-        } else {
-            return false;
-        }
+    public CheckoutResult addBook(UUID customerId, int bookId) {
+        return customerRepository.link(customerId, bookId);
+    }
 
+    /**
+     * 
+     * Checks out a batch of books to their customers, validating all ids with one
+     * query per entity type and inserting the new links in one JDBC batch.
+     * 
+     * @param items the books to check out and their customers
+     * 
+     * @return the outcome of each item, in the order of the items
+     */
+    @Override
+    public List<CheckoutItemResult> checkout(List<CheckoutItem> items) {
+        return customerRepository.linkAll(items);
     }
 }
\ No newline at end of file
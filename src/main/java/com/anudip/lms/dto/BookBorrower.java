@@ -0,0 +1,28 @@
+package com.anudip.lms.dto;
+
+import java.util.UUID;
+
+/**
+ * One row of the join of books with the customers who borrowed them.
+ * 
+ * @param bookId   the id of the book
+ * @param customer the customer who borrowed it
+ * 
+ * @since v1.1
+ */
+public record BookBorrower(int bookId, CustomerSummary customer) {
+
+    /**
+     * Constructs a row from the selected columns; used by the repository
+     * queries.
+     * 
+     * @param bookId  the id of the book
+     * @param id      the id of the customer
+     * @param name    the name of the customer
+     * @param phone   the phone number of the customer
+     * @param address the address of the customer
+     */
+    public BookBorrower(int bookId, UUID id, String name, long phone, String address) {
+        this(bookId, new CustomerSummary(id, name, phone, address));
+    }
+}
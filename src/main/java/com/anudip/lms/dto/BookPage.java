@@ -0,0 +1,16 @@
+package com.anudip.lms.dto;
+
+import java.util.List;
+
+/**
+ * One page of books returned by a keyset-paginated listing.
+ * 
+ * @param books the books on this page, in ascending id order
+ * @param next  the opaque continuation token for the next page, or null if
+ *              this is the last page
+ * 
+ * @since v1.1
+ * @see PageToken
+ */
+public record BookPage(List<BookSummary> books, String next) {
+}
@@ -0,0 +1,64 @@
+package com.anudip.lms.dto;
+
+import java.util.List;
+
+import com.anudip.lms.model.Book;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The columns of a book returned by list and search responses.
+ * 
+ * Summaries are read with a constructor expression, so listing books loads no
+ * entities and never touches their lazy customer collections. The customers
+ * who borrowed the book are only included when asked for, and are then read
+ * for the whole list in one query.
+ * 
+ * @param id          the id of the book
+ * @param name        the name of the book
+ * @param author      the author of the book
+ * @param category    the category of the book
+ * @param description the description of the book
+ * @param price       the price of the book
+ * @param customers   the customers who borrowed the book, or null if they were
+ *                    not asked for
+ * 
+ * @since v1.1
+ */
+public record BookSummary(int id, String name, String author, String category, String description, int price,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<CustomerSummary> customers) {
+
+    /**
+     * Constructs a summary without customers; used by the repository queries.
+     * 
+     * @param id          the id of the book
+     * @param name        the name of the book
+     * @param author      the author of the book
+     * @param category    the category of the book
+     * @param description the description of the book
+     * @param price       the price of the book
+     */
+    public BookSummary(int id, String name, String author, String category, String description, int price) {
+        this(id, name, author, category, description, price, null);
+    }
+
+    /**
+     * Returns the summary of the given book, without customers.
+     * 
+     * @param book the book
+     * @return the summary of the book
+     */
+    public static BookSummary of(Book book) {
+        return new BookSummary(book.getId(), book.getName(), book.getAuthor(), book.getCategory(),
+                book.getDescription(), book.getPrice());
+    }
+
+    /**
+     * Returns this summary with the given customers.
+     * 
+     * @param customers the customers who borrowed the book
+     * @return a copy of this summary listing the customers
+     */
+    public BookSummary withCustomers(List<CustomerSummary> customers) {
+        return new BookSummary(id, name, author, category, description, price, customers);
+    }
+}
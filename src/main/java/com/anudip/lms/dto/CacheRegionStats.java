@@ -0,0 +1,18 @@
+package com.anudip.lms.dto;
+
+/**
+ * A snapshot of the counters of one second-level cache region.
+ * 
+ * @param region    the name of the cache region
+ * @param size      the number of entries currently held in memory, or -1 if
+ *                  not available
+ * @param hits      the number of lookups answered from the cache
+ * @param misses    the number of lookups that had to go to the database
+ * @param puts      the number of entries written to the cache
+ * @param evictions the number of entries evicted because the region was full
+ *                  or the entry expired, or -1 if not available
+ * 
+ * @since v1.1
+ */
+public record CacheRegionStats(String region, long size, long hits, long misses, long puts, long evictions) {
+}
@@ -0,0 +1,14 @@
+package com.anudip.lms.dto;
+
+import java.util.UUID;
+
+/**
+ * One book to check out to one customer as part of a batch checkout.
+ * 
+ * @param customerId the UUID of the customer
+ * @param bookId     the ID of the book
+ * 
+ * @since v1.1
+ */
+public record CheckoutItem(UUID customerId, int bookId) {
+}
@@ -0,0 +1,16 @@
+package com.anudip.lms.dto;
+
+import java.util.UUID;
+
+/**
+ * The outcome of one item of a batch checkout.
+ * 
+ * @param customerId the UUID of the customer
+ * @param bookId     the ID of the book
+ * @param result     the outcome of checking the book out to the customer
+ * 
+ * @since v1.1
+ * @see CheckoutItem
+ */
+public record CheckoutItemResult(UUID customerId, int bookId, CheckoutResult result) {
+}
@@ -0,0 +1,21 @@
+package com.anudip.lms.dto;
+
+/**
+ * The outcome of checking a book out to a customer.
+ * 
+ * @since v1.1
+ */
+public enum CheckoutResult {
+
+    /** The book has been checked out to the customer. */
+    LINKED,
+
+    /** The customer had already checked out the book; nothing was changed. */
+    ALREADY_LINKED,
+
+    /** There is no book with the given id. */
+    MISSING_BOOK,
+
+    /** There is no customer with the given id. */
+    MISSING_CUSTOMER
+}
@@ -0,0 +1,16 @@
+package com.anudip.lms.dto;
+
+import java.util.UUID;
+
+/**
+ * The columns of a customer listed as the borrower of a book.
+ * 
+ * @param id      the id of the customer
+ * @param name    the name of the customer
+ * @param phone   the phone number of the customer
+ * @param address the address of the customer
+ * 
+ * @since v1.1
+ */
+public record CustomerSummary(UUID id, String name, long phone, String address) {
+}
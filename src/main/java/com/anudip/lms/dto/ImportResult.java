@@ -0,0 +1,27 @@
+package com.anudip.lms.dto;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk import.
+ * 
+ * Records are numbered from 0 in the order they appeared in the request; every
+ * record that is not listed in {@code failures} was imported.
+ * 
+ * @param received the number of records read from the request
+ * @param imported the number of records saved to the database
+ * @param failures the records that could not be imported, with the reason
+ * 
+ * @since v1.1
+ */
+public record ImportResult(int received, int imported, List<RecordFailure> failures) {
+
+    /**
+     * A record that could not be imported.
+     * 
+     * @param index   the position of the record in the request, starting at 0
+     * @param message why the record could not be imported
+     */
+    public record RecordFailure(int index, String message) {
+    }
+}
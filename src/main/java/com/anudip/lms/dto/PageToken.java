@@ -0,0 +1,51 @@
+package com.anudip.lms.dto;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * A utility class for encoding and decoding the opaque continuation tokens used
+ * by keyset-paginated listings.
+ * 
+ * A token carries the id of the last entity of the previous page, so the next
+ * page can be fetched with an index seek on the primary key instead of an
+ * offset scan. Clients must treat tokens as opaque strings.
+ * 
+ * @since v1.1
+ * @see BookPage
+ */
+public final class PageToken {
+
+    /** The format version written as the first byte of every token. */
+    private static final byte VERSION = 1;
+
+    private PageToken() {
+    }
+
+    /**
+     * Returns the continuation token that resumes a listing after the given id.
+     * 
+     * @param lastId the id of the last entity of the current page
+     * @return the opaque continuation token
+     */
+    public static String encode(int lastId) {
+        byte[] bytes = ByteBuffer.allocate(5).put(VERSION).putInt(lastId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Returns the id after which the listing described by the given token
+     * resumes.
+     * 
+     * @param token the continuation token
+     * @return the id of the last entity of the previous page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static int decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != 5 || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        return ByteBuffer.wrap(bytes, 1, 4).getInt();
+    }
+}
@@ -0,0 +1,20 @@
+package com.anudip.lms.dto;
+
+import java.util.Set;
+
+import com.anudip.lms.model.BookField;
+
+/**
+ * A book returned by a keyword search together with the fields the keyword
+ * matched in and its relevance score, so clients can highlight and rank results
+ * without another lookup.
+ * 
+ * @param book          the matched book
+ * @param matchedFields the fields of the book the keyword matched in
+ * @param score         the relevance of the book to the keyword; higher is
+ *                      better
+ * 
+ * @since v1.1
+ */
+public record SearchHit(BookSummary book, Set<BookField> matchedFields, double score) {
+}
@@ -0,0 +1,21 @@
+package com.anudip.lms.dto;
+
+/**
+ * The SQL behind the profiled requests of one handler, added up.
+ * 
+ * @param handler       the controller method that served the requests
+ * @param requests      the number of profiled requests
+ * @param slowRequests  the number of them that were logged as slow
+ * @param avgMs         the average duration of a request in milliseconds
+ * @param maxMs         the longest duration of a request in milliseconds
+ * @param avgStatements the average number of SQL statements run per request
+ * @param maxStatements the most SQL statements run by one request
+ * @param avgRows       the average number of rows fetched per request
+ * @param jdbcMs        the total time spent executing statements in
+ *                      milliseconds
+ * 
+ * @since v1.1
+ */
+public record SqlProfileStats(String handler, long requests, long slowRequests, double avgMs, double maxMs,
+        double avgStatements, long maxStatements, double avgRows, double jdbcMs) {
+}
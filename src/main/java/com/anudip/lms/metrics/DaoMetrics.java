@@ -0,0 +1,110 @@
+package com.anudip.lms.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.anudip.lms.dto.BookPage;
+import com.anudip.lms.dto.CheckoutResult;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call of a {@code BookDao} or {@code CustomerDao} method.
+ * 
+ * Each call is recorded in the {@code lms.dao} timer, tagged with the DAO, the
+ * method, whether it threw, and the size range of the returned list, or the
+ * outcome of a checkout. The exact number of returned rows is recorded in the
+ * {@code lms.dao.results} summary. The meters are registered on the first call
+ * with their tags and looked up in a map after that.
+ * 
+ * @since v1.1
+ */
+@Aspect
+@Component
+public class DaoMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** The timers of the DAO calls, by their tags. */
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    /** The result size summaries of the DAO methods, by DAO and method. */
+    private final Map<SummaryKey, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    /** The tags of a DAO call timer. */
+    private record TimerKey(String dao, String method, String outcome, String results) {
+    }
+
+    /** The tags of a DAO result size summary. */
+    private record SummaryKey(String dao, String method) {
+    }
+
+    /**
+     * Times the given DAO call and records its result size.
+     * 
+     * @param call the intercepted call
+     * @return the result of the call
+     * @throws Throwable anything the call throws
+     */
+    @Around("execution(public * com.anudip.lms.dao.*.*(..))")
+    public Object time(ProceedingJoinPoint call) throws Throwable {
+        String dao = call.getSignature().getDeclaringType().getSimpleName();
+        String method = call.getSignature().getName();
+        long start = System.nanoTime();
+        String outcome = "success";
+        Object result = null;
+        try {
+            result = call.proceed();
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            int size = size(result);
+            String results = result instanceof CheckoutResult checkout ? checkout.name()
+                    : size < 0 ? "none" : ResultSize.bucket(size);
+            timers.computeIfAbsent(new TimerKey(dao, method, outcome, results), key -> Timer.builder("lms.dao")
+                    .description("Time spent in DAO calls")
+                    .tags("dao", key.dao(), "method", key.method(), "outcome", key.outcome(), "results",
+                            key.results())
+                    .register(meterRegistry))
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            if (size >= 0) {
+                summaries.computeIfAbsent(new SummaryKey(dao, method), key -> DistributionSummary
+                        .builder("lms.dao.results")
+                        .description("Number of entities returned by DAO calls")
+                        .tags("dao", key.dao(), "method", key.method())
+                        .register(meterRegistry))
+                        .record(size);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entities in the given DAO result.
+     * 
+     * @param result the value returned by the DAO
+     * @return the number of entities, or -1 if the result is not a list of them
+     */
+    private static int size(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof BookPage page) {
+            return page.books().size();
+        }
+        return -1;
+    }
+}
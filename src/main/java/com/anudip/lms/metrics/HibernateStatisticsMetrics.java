@@ -0,0 +1,57 @@
+package com.anudip.lms.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Publishes the fetches and loads of each Hibernate collection role as metrics.
+ *
+ * The totals for sessions, statements, entities, queries and caches are
+ * published by {@code org.hibernate.stat.HibernateMetrics} from
+ * hibernate-micrometer, which Spring Boot binds to every entity manager
+ * factory. It does not break collections down by role, so this adds
+ * {@code hibernate.collections.role.fetches} and
+ * {@code hibernate.collections.role.loads}, tagged with the role, and N+1
+ * loading of {@code Book.customers} or {@code Customer.books} shows up as a
+ * fetch count growing with every listed entity.
+ *
+ * The statistics are only collected with
+ * {@code hibernate.generate_statistics=true}.
+ *
+ * @since v1.1
+ */
+@Component
+public class HibernateStatisticsMetrics implements MeterBinder {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Registers the counters of each collection role with the given registry.
+     *
+     * @param registry the registry to register with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String role : statistics.getCollectionRoleNames()) {
+            CollectionStatistics collection = statistics.getCollectionStatistics(role);
+            FunctionCounter.builder("hibernate.collections.role.fetches", collection, CollectionStatistics::getFetchCount)
+                    .description("Collections fetched by a separate select")
+                    .tag("role", role)
+                    .register(registry);
+            FunctionCounter.builder("hibernate.collections.role.loads", collection, CollectionStatistics::getLoadCount)
+                    .description("Collections loaded")
+                    .tag("role", role)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.anudip.lms.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * A data source that reports the statements run through its connections to the
+ * {@link SqlProfiler}.
+ *
+ * Connections, statements and result sets are wrapped in proxies that time
+ * each statement execution and count the rows read, but only while the request
+ * on the current thread is being profiled: a connection is wrapped if it is
+ * obtained during a profiled request, and a statement if it is prepared during
+ * one. The requests that are not sampled get the JDBC objects of the pool
+ * themselves, without a reflective call in between. Statements prepared on a
+ * connection obtained before the profile started are not counted.
+ *
+ * @since v1.1
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    /**
+     * Constructs a new {@code ProfilingDataSource}.
+     *
+     * @param target the data source to profile
+     */
+    public ProfilingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profiled(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profiled(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Wraps the given connection if the request on the current thread is being
+     * profiled.
+     */
+    private static Connection profiled(Connection connection) {
+        return SqlProfiler.current() == null ? connection
+                : wrap(Connection.class, connection, new ConnectionHandler());
+    }
+
+    private static <T> T wrap(Class<T> type, T target, Handler handler) {
+        handler.target = target;
+        return type.cast(Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[] { type },
+                handler));
+    }
+
+    /** Forwards every call to the wrapped JDBC object. */
+    private abstract static class Handler implements InvocationHandler {
+        Object target;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // Hibernate keeps statements and result sets in hash maps, so a proxy must
+            // be equal to itself rather than to its target
+            return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> handle(method, args);
+            };
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** Wraps the statements created by a connection while a request is profiled. */
+    private static final class ConnectionHandler extends Handler {
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            if (SqlProfiler.current() == null) {
+                return result;
+            }
+            return switch (method.getName()) {
+            case "createStatement" -> wrap(Statement.class, (Statement) result, new StatementHandler(null));
+            case "prepareStatement" ->
+                wrap(PreparedStatement.class, (PreparedStatement) result, new StatementHandler((String) args[0]));
+            case "prepareCall" ->
+                wrap(CallableStatement.class, (CallableStatement) result, new StatementHandler((String) args[0]));
+            default -> result;
+            };
+        }
+    }
+
+    /** Times the executions of a statement and wraps its result sets. */
+    private static final class StatementHandler extends Handler {
+        private final String sql;
+
+        private StatementHandler(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            SqlProfiler.Profile profile = SqlProfiler.current();
+            String name = method.getName();
+            if (profile == null) {
+                return forward(method, args);
+            }
+
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                Object result = forward(method, args);
+                // plain statements carry their SQL in the call rather than at creation
+                String executed = sql != null ? sql
+                        : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                profile.statement(executed, System.nanoTime() - start);
+                return result instanceof ResultSet resultSet ? wrapResultSet(resultSet) : result;
+            }
+
+            Object result = forward(method, args);
+            return name.equals("getResultSet") && result instanceof ResultSet resultSet
+                    ? wrapResultSet(resultSet)
+                    : result;
+        }
+
+        private static ResultSet wrapResultSet(ResultSet resultSet) {
+            return wrap(ResultSet.class, resultSet, new ResultSetHandler());
+        }
+    }
+
+    /** Counts the rows read from a result set. */
+    private static final class ResultSetHandler extends Handler {
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                SqlProfiler.Profile profile = SqlProfiler.current();
+                if (profile != null) {
+                    profile.row();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.anudip.lms.metrics;
+
+/**
+ * Groups result sizes into a few ranges, so that they can be used as a metric
+ * tag without creating a time series per size.
+ * 
+ * @since v1.1
+ */
+public final class ResultSize {
+
+    private ResultSize() {
+    }
+
+    /**
+     * Returns the range the given number of results falls in.
+     * 
+     * @param size the number of results
+     * @return one of "0", "1", "2-10", "11-100", "101-1000" and "1000+"
+     */
+    public static String bucket(int size) {
+        if (size <= 1) {
+            return size <= 0 ? "0" : "1";
+        }
+        if (size <= 10) {
+            return "2-10";
+        }
+        if (size <= 100) {
+            return "11-100";
+        }
+        return size <= 1000 ? "101-1000" : "1000+";
+    }
+}
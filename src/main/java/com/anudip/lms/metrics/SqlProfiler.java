@@ -0,0 +1,229 @@
+package com.anudip.lms.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.anudip.lms.dto.SqlProfileStats;
+
+/**
+ * Counts the SQL statements, fetched rows and JDBC time behind each HTTP
+ * request.
+ *
+ * A sampled share of the requests is profiled: {@link #start(String)} is
+ * called when the request reaches its handler, the statements run on the
+ * request thread are recorded by {@link ProfilingDataSource}, and
+ * {@link #finish(String, String, int)} closes the profile. A request that took
+ * longer than the slow-request threshold, or ran more statements than the
+ * statement threshold, is logged as one structured record naming its handler
+ * and the statements it ran. The profiles are also added up per handler, to
+ * report the top offenders.
+ *
+ * Requests that are not sampled pay only for a random draw and a thread-local
+ * lookup per connection they obtain.
+ *
+ * @since v1.1
+ * @see SqlProfilingInterceptor
+ */
+@Component
+public class SqlProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlProfiler.class);
+
+    /** The most distinct statements listed in the record of a slow request. */
+    private static final int MAX_LISTED_STATEMENTS = 20;
+
+    /** The profile of the request running on the current thread, if it is sampled. */
+    private static final ThreadLocal<Profile> CURRENT = new ThreadLocal<>();
+
+    /** The SQL run by one sampled request. */
+    static final class Profile {
+        private final String handler;
+        private final long start = System.nanoTime();
+        private int statements;
+        private long rows;
+        private long jdbcNanos;
+        private final Map<String, Integer> statementCounts = new LinkedHashMap<>();
+
+        private Profile(String handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Records one executed statement.
+         *
+         * @param sql   the SQL of the statement, or null if unknown
+         * @param nanos the time the execution took
+         */
+        void statement(String sql, long nanos) {
+            statements++;
+            jdbcNanos += nanos;
+            String key = summarize(sql);
+            if (statementCounts.containsKey(key) || statementCounts.size() < MAX_LISTED_STATEMENTS) {
+                statementCounts.merge(key, 1, Integer::sum);
+            }
+        }
+
+        /** Records one fetched row. */
+        void row() {
+            rows++;
+        }
+    }
+
+    /** The profiles of one handler added up. */
+    private static final class Totals {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder slowRequests = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder statements = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder jdbcNanos = new LongAdder();
+    }
+
+    private final double sampleRate;
+
+    private final long slowRequestNanos;
+
+    private final int maxStatements;
+
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new {@code SqlProfiler}.
+     *
+     * @param sampleRate      the share of requests to profile, from 0 to 1
+     * @param slowRequestMs   the duration in milliseconds above which a profiled
+     *                        request is logged
+     * @param maxStatements   the number of statements above which a profiled
+     *                        request is logged, however fast it was
+     */
+    public SqlProfiler(@Value("${lms.sql-profiler.sample-rate:0.1}") double sampleRate,
+            @Value("${lms.sql-profiler.slow-request-ms:500}") long slowRequestMs,
+            @Value("${lms.sql-profiler.max-statements:50}") int maxStatements) {
+        this.sampleRate = sampleRate;
+        this.slowRequestNanos = slowRequestMs * 1_000_000;
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Returns the profile of the request running on the current thread.
+     *
+     * @return the profile, or null if the current request is not sampled
+     */
+    static Profile current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts profiling the request on the current thread, if it is sampled.
+     *
+     * @param handler the name of the handler method serving the request
+     */
+    public void start(String handler) {
+        if (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            CURRENT.set(new Profile(handler));
+        }
+    }
+
+    /**
+     * Stops profiling the request on the current thread, logs it if it was slow,
+     * and adds it to the totals of its handler.
+     *
+     * @param method the HTTP method of the request
+     * @param uri    the URI of the request
+     * @param status the status of the response
+     */
+    public void finish(String method, String uri, int status) {
+        Profile profile = CURRENT.get();
+        if (profile == null) {
+            return;
+        }
+        CURRENT.remove();
+
+        long nanos = System.nanoTime() - profile.start;
+        boolean slow = nanos > slowRequestNanos || profile.statements > maxStatements;
+
+        Totals handlerTotals = totals.computeIfAbsent(profile.handler, h -> new Totals());
+        handlerTotals.requests.increment();
+        handlerTotals.nanos.add(nanos);
+        handlerTotals.maxNanos.accumulate(nanos);
+        handlerTotals.statements.add(profile.statements);
+        handlerTotals.maxStatements.accumulate(profile.statements);
+        handlerTotals.rows.add(profile.rows);
+        handlerTotals.jdbcNanos.add(profile.jdbcNanos);
+
+        if (slow) {
+            handlerTotals.slowRequests.increment();
+            log.warn("slow request handler={} method={} uri=\"{}\" status={} ms={} statements={} rows={} jdbc_ms={}"
+                    + " sql={}", profile.handler, method, uri, status, nanos / 1_000_000, profile.statements,
+                    profile.rows, profile.jdbcNanos / 1_000_000, describe(profile.statementCounts));
+        }
+    }
+
+    /**
+     * Returns the handlers that spent the most time in JDBC calls, with their
+     * totals over the profiled requests.
+     *
+     * @param limit the maximum number of handlers to return
+     * @return the totals of the top handlers, most JDBC time first
+     */
+    public List<SqlProfileStats> topOffenders(int limit) {
+        List<SqlProfileStats> stats = new ArrayList<>();
+        totals.forEach((handler, t) -> {
+            long requests = t.requests.sum();
+            stats.add(new SqlProfileStats(handler, requests, t.slowRequests.sum(),
+                    t.nanos.sum() / 1e6 / Math.max(1, requests), t.maxNanos.get() / 1e6,
+                    (double) t.statements.sum() / Math.max(1, requests), t.maxStatements.get(),
+                    (double) t.rows.sum() / Math.max(1, requests), t.jdbcNanos.sum() / 1e6));
+        });
+        stats.sort(Comparator.comparingDouble(SqlProfileStats::jdbcMs).reversed());
+        return stats.subList(0, Math.min(Math.max(0, limit), stats.size()));
+    }
+
+    /**
+     * Drops the totals of every handler.
+     */
+    public void reset() {
+        totals.clear();
+    }
+
+    /**
+     * Returns the given SQL with runs of whitespace collapsed and long
+     * statements cut short, so that it fits on a log line.
+     */
+    private static String summarize(String sql) {
+        if (sql == null) {
+            return "?";
+        }
+        String collapsed = sql.strip().replaceAll("\\s+", " ");
+        return collapsed.length() > 160 ? collapsed.substring(0, 160) + "..." : collapsed;
+    }
+
+    /**
+     * Lists the given statements with their counts, e.g.
+     * {@code [2x "select ...", 1x "insert ..."]}.
+     */
+    private static String describe(Map<String, Integer> statementCounts) {
+        StringBuilder description = new StringBuilder("[");
+        statementCounts.forEach((sql, count) -> {
+            if (description.length() > 1) {
+                description.append(", ");
+            }
+            description.append(count).append("x \"").append(sql.replace("\"", "'")).append('"');
+        });
+        return description.append(']').toString();
+    }
+}
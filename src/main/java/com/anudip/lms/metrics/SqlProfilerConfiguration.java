@@ -0,0 +1,50 @@
+package com.anudip.lms.metrics;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration class for the {@link SqlProfiler}.
+ * 
+ * It wraps the application's data source in a {@link ProfilingDataSource} and
+ * registers the {@link SqlProfilingInterceptor} for every request. It is left
+ * out with {@code lms.sql-profiler.enabled=false}.
+ * 
+ * @since v1.1
+ */
+@Configuration
+@ConditionalOnProperty(name = "lms.sql-profiler.enabled", matchIfMissing = true)
+public class SqlProfilerConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private SqlProfiler sqlProfiler;
+
+    /**
+     * Wraps every data source bean in a {@link ProfilingDataSource}.
+     * 
+     * @return the post-processor that wraps the data sources
+     */
+    @Bean
+    static BeanPostProcessor profilingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)
+                        ? new ProfilingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlProfilingInterceptor(sqlProfiler));
+    }
+}
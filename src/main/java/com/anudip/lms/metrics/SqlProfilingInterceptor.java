@@ -0,0 +1,51 @@
+package com.anudip.lms.metrics;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Profiles the SQL behind each request handled by a controller method with the
+ * {@link SqlProfiler}.
+ * 
+ * Statements run after the handler hands the response to another thread, as
+ * for streamed responses, are not counted.
+ * 
+ * @since v1.1
+ */
+public class SqlProfilingInterceptor implements AsyncHandlerInterceptor {
+
+    private final SqlProfiler sqlProfiler;
+
+    /**
+     * Constructs a new {@code SqlProfilingInterceptor}.
+     * 
+     * @param sqlProfiler the profiler to report to
+     */
+    public SqlProfilingInterceptor(SqlProfiler sqlProfiler) {
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            sqlProfiler.start(method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        sqlProfiler.finish(request.getMethod(), request.getRequestURI(), response.getStatus());
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        // the request thread is released here, so its profile must not outlive it
+        sqlProfiler.finish(request.getMethod(), request.getRequestURI(), response.getStatus());
+    }
+}
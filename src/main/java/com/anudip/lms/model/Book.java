@@ -1,28 +1,62 @@
 package com.anudip.lms.model;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 /**
  * 
  * Represents a book in the database.
  * 
+ * Books are held in the second-level cache, so repeated lookups by id do not
+ * go to the database until the entry is evicted or the book is changed.
+ * 
  * @since v1.0
  */
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = @Index(name = "idx_books_updated_at", columnList = "updated_at"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Book {
 
-    /** The unique identifier for this book. */
+    /**
+     * The unique identifier for this book.
+     * 
+     * Ids are assigned by Hibernate when the book is first saved, from the
+     * "book_seq" sequence (a single-row table on MySQL). Each trip to the
+     * sequence reserves a block of {@code allocationSize} ids that are then
+     * handed out in memory, so inserts need neither a lookup nor a round trip
+     * per book, and new ids always sort after existing ones. How the blocks are
+     * used is set by {@code hibernate.id.optimizer.pooled.preferred}. The
+     * sequence starts above the range of the randomly chosen ids given to books
+     * by earlier versions. Ids sent by clients are ignored.
+     */
     @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", initialValue = 1000000, allocationSize = 50)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private int id;
 
     /** The name of this book. */
@@ -40,6 +74,15 @@ public class Book {
     /** The price of this book. */
     private int price;
 
+    /**
+     * When this book was last inserted or updated, set on every write. Lets a
+     * persisted copy of the catalogue read back only the books changed since it
+     * was written.
+     */
+    @Column(name = "updated_at")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
+
     /**
      * The customers who have purchased this book.
      * 
@@ -48,20 +91,24 @@ public class Book {
      * "books" field
      * in the {@link Customer} class is used to store the relationships between
      * customers and books.
+     *
+     * When several books are loaded, their customers are fetched together, in
+     * batches. The customers are written to JSON without their own books, so
+     * that a book does not recurse into itself.
      */
     @ManyToMany(fetch = FetchType.LAZY, mappedBy = "books", cascade = {
             CascadeType.PERSIST,
             CascadeType.MERGE
     })
+    @BatchSize(size = 50)
+    @JsonIgnoreProperties("books")
     private Set<Customer> customers = new HashSet<>();
 
     /**
      * 
-     * Constructs a new {@code Book} with a unique ID generated using a
-     * {@link ThreadLocalRandom}.
+     * Constructs a new {@code Book}. Its ID is assigned when it is first saved.
      */
     public Book() {
-        this.id = ThreadLocalRandom.current().nextInt(100000, 1000000);
     }
 
     /**
@@ -74,6 +121,17 @@ public class Book {
         return id;
     }
 
+    /**
+     * 
+     * Sets the unique identifier for this book. Only needed for books that are
+     * read outside of JPA; a new book is given its ID when it is first saved.
+     * 
+     * @param id the new ID for this book
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * 
      * Returns the name of this book.
@@ -172,6 +230,25 @@ public class Book {
         this.price = price;
     }
 
+    /**
+     * Returns when this book was last inserted or updated.
+     * 
+     * @return the time of the last write, or null if the book was last written
+     *         before the column existed
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Stamps this book with the current time before it is inserted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
     /**
      * Returns the customers who have purchased this book.
      * 
@@ -198,7 +275,7 @@ public class Book {
     @Override
     public String toString() {
         return "Book [id=" + id + ", name=" + name + ", author=" + author + ", category=" + category + ", description="
-                + description + ", price=" + price + ", customers=" + customers + "]";
+                + description + ", price=" + price + "]";
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.anudip.lms.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.anudip.lms.dto.BookSummary;
+
+/**
+ * The text fields of a {@link Book} that keyword searches look at.
+ * 
+ * Each field has a bit in an {@code int} mask, so the set of fields a keyword
+ * matched can be carried around without allocating a collection per book.
+ * 
+ * @since v1.1
+ * @see Book
+ */
+public enum BookField {
+
+    /** The name of the book. */
+    NAME,
+
+    /** The author of the book. */
+    AUTHOR,
+
+    /** The description of the book. */
+    DESCRIPTION;
+
+    /**
+     * Returns the bit of this field in a field mask.
+     * 
+     * @return the mask with only this field set
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns the value of this field of the given book.
+     * 
+     * @param book the book to read
+     * @return the value of this field, may be null
+     */
+    public String of(Book book) {
+        switch (this) {
+            case NAME:
+                return book.getName();
+            case AUTHOR:
+                return book.getAuthor();
+            default:
+                return book.getDescription();
+        }
+    }
+
+    /**
+     * Returns the value of this field of the given book summary.
+     * 
+     * @param book the summary to read
+     * @return the value of this field, may be null
+     */
+    public String of(BookSummary book) {
+        switch (this) {
+            case NAME:
+                return book.name();
+            case AUTHOR:
+                return book.author();
+            default:
+                return book.description();
+        }
+    }
+
+    /**
+     * Returns the fields whose bits are set in the given mask.
+     * 
+     * @param mask the field mask
+     * @return the fields in the mask
+     */
+    public static Set<BookField> fromMask(int mask) {
+        Set<BookField> fields = EnumSet.noneOf(BookField.class);
+        for (BookField field : values()) {
+            if ((mask & field.mask()) != 0) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,68 @@
+package com.anudip.lms.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Records that a book was removed, so that a persisted copy of the catalogue
+ * written before the removal can drop the book without reading every id.
+ *
+ * Tombstones are only needed as long as such a copy may be read back, and are
+ * pruned once they are older than that.
+ *
+ * @since v1.1
+ * @see Book
+ */
+@Entity
+@Table(name = "book_tombstones", indexes = @Index(name = "idx_book_tombstones_deleted_at", columnList = "deleted_at"))
+public class BookTombstone {
+
+    /** The id of the removed book. */
+    @Id
+    @Column(name = "book_id")
+    private int bookId;
+
+    /** When the book was removed. */
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+    /**
+     * Constructs a new {@code BookTombstone}; used by JPA.
+     */
+    protected BookTombstone() {
+    }
+
+    /**
+     * Constructs a new {@code BookTombstone}.
+     *
+     * @param bookId    the id of the removed book
+     * @param deletedAt when the book was removed
+     */
+    public BookTombstone(int bookId, Instant deletedAt) {
+        this.bookId = bookId;
+        this.deletedAt = deletedAt;
+    }
+
+    /**
+     * Returns the id of the removed book.
+     *
+     * @return the id of the book
+     */
+    public int getBookId() {
+        return bookId;
+    }
+
+    /**
+     * Returns when the book was removed.
+     *
+     * @return the time of the removal
+     */
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -4,7 +4,18 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
@@ -15,14 +26,30 @@ import jakarta.persistence.Table;
 /**
  * Represents a customer in the database.
  * 
+ * Customers are held in the second-level cache, so repeated lookups by id do
+ * not go to the database until the entry is evicted or the customer is
+ * changed.
+ * 
  * @since v1.0
  */
 @Entity
 @Table(name = "customers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Customer {
 
-    /** The unique identifier for this customer. */
+    /**
+     * The unique identifier for this customer.
+     * 
+     * A time-ordered (version 7) UUID assigned when the customer is first saved,
+     * stored as {@code BINARY(16)} here and in the "customer_id" column of
+     * "customer_book". Ids sent by clients are ignored.
+     */
     @Id
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private UUID id;
 
     /** The name of this customer. */
@@ -45,6 +72,9 @@ public class Customer {
      * with the "customer_id" column representing the customers and the "book_id"
      * column
      * representing the books.
+     *
+     * When several customers are loaded, their books are fetched together, in
+     * batches. The books are written to JSON without their own customers.
      */
     @ManyToMany(fetch = FetchType.LAZY, cascade = {
             CascadeType.PERSIST,
@@ -53,14 +83,15 @@ public class Customer {
     @JoinTable(name = "customer_book", joinColumns = {
             @jakarta.persistence.JoinColumn(name = "customer_id") }, inverseJoinColumns = {
                     @jakarta.persistence.JoinColumn(name = "book_id") })
+    @BatchSize(size = 50)
+    @JsonIgnoreProperties("customers")
     private Set<Book> books = new HashSet<>();
 
     /**
-     * Constructs a new {@code Customer} with a unique ID generated using a
-     * {@link UUID}.
+     * Constructs a new {@code Customer}. Its ID is assigned when it is first
+     * saved.
      */
     public Customer() {
-        this.id = UUID.randomUUID();
     }
 
     /**
@@ -160,7 +191,6 @@ public class Customer {
      */
     @Override
     public String toString() {
-        return "Customer [id=" + id + ", name=" + name + ", phone=" + phone + ", address=" + address + ", books="
-                + books + "]";
+        return "Customer [id=" + id + ", name=" + name + ", phone=" + phone + ", address=" + address + "]";
     }
 }
@@ -0,0 +1,21 @@
+package com.anudip.lms.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Marks a {@link java.util.UUID} id that is assigned a time-ordered UUID when
+ * its entity is first persisted.
+ * 
+ * @since v1.1
+ * @see TimeOrderedUuidGenerator
+ */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface TimeOrderedUuid {
+}
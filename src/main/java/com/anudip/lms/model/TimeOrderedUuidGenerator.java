@@ -0,0 +1,66 @@
+package com.anudip.lms.model;
+
+import java.lang.reflect.Member;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+/**
+ * Generates version 7 UUIDs as described in RFC 9562.
+ * 
+ * The first 48 bits hold the Unix time in milliseconds and the next 12 bits
+ * (after the version) a counter that orders ids created within the same
+ * millisecond, so ids generated by this application always increase. Stored
+ * big-endian as {@code BINARY(16)}, new rows therefore go to the end of the
+ * primary key index instead of a random page of it. The remaining 62 bits are
+ * random.
+ * 
+ * @since v1.1
+ * @see TimeOrderedUuid
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    /**
+     * The timestamp and counter of the last generated id, as the millisecond
+     * shifted left by 12 bits plus the counter.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    /**
+     * Constructs a new {@code TimeOrderedUuidGenerator}. Called by Hibernate for
+     * each id annotated with {@link TimeOrderedUuid}.
+     * 
+     * @param config          the annotation on the id
+     * @param idMember        the id field or getter
+     * @param creationContext the context the generator is created in
+     */
+    public TimeOrderedUuidGenerator(TimeOrderedUuid config, Member idMember,
+            CustomIdGeneratorCreationContext creationContext) {
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return next();
+    }
+
+    /**
+     * Returns a new time-ordered UUID, greater than every UUID this method has
+     * returned before.
+     * 
+     * @return the new UUID
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        // if the clock has not moved on (or went back) count up from the last id;
+        // a counter overflow borrows the next millisecond
+        long stamp = LAST.updateAndGet(last -> Math.max(now, last + 1));
+
+        long mostSigBits = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFFL);
+        long leastSigBits = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,48 @@
+package com.anudip.lms.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Creates the MySQL FULLTEXT index used by
+ * {@link BookRepository#searchFullText(String, int, int)}.
+ * 
+ * Hibernate cannot declare FULLTEXT indexes, so the index is created at
+ * startup if it does not exist yet, after Hibernate has created or updated the
+ * schema, so that the books table exists even on a fresh database. This only
+ * happens when keyword search is pushed down to the database.
+ * 
+ * @since v1.1
+ * @see BookRepository
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(name = "lms.search.strategy", havingValue = "DATABASE")
+public class BookFullTextIndex {
+
+    /** The name of the FULLTEXT index on the books table. */
+    public static final String INDEX_NAME = "ft_books";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the FULLTEXT index on the name, author and description columns of
+     * the books table unless it already exists.
+     */
+    @PostConstruct
+    public void create() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = 'books' AND index_name = ?",
+                Integer.class, INDEX_NAME);
+        if (existing == null || existing == 0) {
+            jdbcTemplate.execute("ALTER TABLE books ADD FULLTEXT INDEX " + INDEX_NAME + " (name, author, description)");
+        }
+    }
+}
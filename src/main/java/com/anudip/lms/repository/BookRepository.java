@@ -1,7 +1,15 @@
 package com.anudip.lms.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import com.anudip.lms.dto.BookBorrower;
+import com.anudip.lms.dto.BookSummary;
 import com.anudip.lms.model.Book;
 
 /**
@@ -20,4 +28,108 @@ import com.anudip.lms.model.Book;
  */
 public interface BookRepository extends JpaRepository<Book, Integer> {
 
+    /** Selects the {@link BookSummary} of each book. */
+    String SELECT_SUMMARY = "select new com.anudip.lms.dto.BookSummary(b.id, b.name, b.author, b.category, "
+            + "b.description, b.price) from Book b";
+
+    /** Selects each customer who borrowed a book, as a {@link BookBorrower}. */
+    String SELECT_BORROWER = "select new com.anudip.lms.dto.BookBorrower(b.id, c.id, c.name, c.phone, c.address) "
+            + "from Book b join b.customers c";
+
+    /**
+     * Returns the summaries of all books in ascending id order, in one query that
+     * reads only the book columns.
+     * 
+     * @return the summaries of all books
+     */
+    @Query(SELECT_SUMMARY + " order by b.id")
+    List<BookSummary> findAllSummaries();
+
+    /**
+     * Returns the summaries of the books whose id is greater than the given id, in
+     * ascending id order.
+     * 
+     * This is a keyset (seek) query: it is served by the primary key index and
+     * its cost does not grow with how far into the catalogue the page starts.
+     * 
+     * @param id       the id after which the page starts
+     * @param pageable the page size; only the first page is ever requested
+     * @return the summaries of the books of the page
+     */
+    @Query(SELECT_SUMMARY + " where b.id > ?1 order by b.id")
+    List<BookSummary> findSummariesAfter(int id, Pageable pageable);
+
+    /**
+     * Returns the summaries of the books with the given ids, in no particular
+     * order.
+     * 
+     * @param ids the ids of the books
+     * @return the summaries of the books that exist
+     */
+    @Query(SELECT_SUMMARY + " where b.id in ?1")
+    List<BookSummary> findSummariesByIdIn(Collection<Integer> ids);
+
+    /**
+     * Returns the summaries of the books inserted or updated after the given
+     * time, served by the index on {@code updated_at}.
+     * 
+     * @param since the time after which the books were written
+     * @return the summaries of the written books, in ascending id order
+     */
+    @Query(SELECT_SUMMARY + " where b.updatedAt > ?1 order by b.id")
+    List<BookSummary> findSummariesUpdatedAfter(Instant since);
+
+    /**
+     * Returns the customers who borrowed each of the given books, in one query.
+     * 
+     * @param ids the ids of the books
+     * @return one row per book and customer
+     */
+    @Query(SELECT_BORROWER + " where b.id in ?1")
+    List<BookBorrower> findBorrowersByBookIdIn(Collection<Integer> ids);
+
+    /**
+     * Returns the customers who borrowed each book, in one query.
+     * 
+     * @return one row per borrowed book and customer
+     */
+    @Query(SELECT_BORROWER)
+    List<BookBorrower> findAllBorrowers();
+
+    /**
+     * The id and relevance of a book matched by a full-text query.
+     */
+    interface ScoredId {
+
+        /**
+         * Returns the id of the matched book.
+         * 
+         * @return the id of the book
+         */
+        Integer getId();
+
+        /**
+         * Returns the relevance of the book to the query as computed by MySQL.
+         * 
+         * @return the relevance; higher is better
+         */
+        Double getScore();
+    }
+
+    /**
+     * Returns one page of the ids of the books whose name, author or description
+     * match the given MySQL boolean-mode full-text query, most relevant first.
+     * 
+     * The query is served by the FULLTEXT index created by
+     * {@link BookFullTextIndex}, and only the requested page leaves the database.
+     * 
+     * @param booleanQuery the full-text query, e.g. {@code "+harry +potter"}
+     * @param offset       the number of matches to skip
+     * @param limit        the maximum number of matches to return
+     * @return the ids and relevance of the matching books
+     */
+    @Query(value = "SELECT id, MATCH(name, author, description) AGAINST (?1 IN BOOLEAN MODE) AS score "
+            + "FROM books WHERE MATCH(name, author, description) AGAINST (?1 IN BOOLEAN MODE) "
+            + "ORDER BY score DESC, id LIMIT ?3 OFFSET ?2", nativeQuery = true)
+    List<ScoredId> searchFullText(String booleanQuery, int offset, int limit);
 }
@@ -0,0 +1,40 @@
+package com.anudip.lms.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.anudip.lms.model.BookTombstone;
+
+/**
+ * A repository interface for the tombstones of removed books.
+ *
+ * @since v1.1
+ * @see BookTombstone
+ */
+public interface BookTombstoneRepository extends JpaRepository<BookTombstone, Integer> {
+
+    /**
+     * Returns the ids of the books removed after the given time.
+     *
+     * @param since the time after which the books were removed
+     * @return the ids of the removed books
+     */
+    @Query("select t.bookId from BookTombstone t where t.deletedAt > ?1")
+    List<Integer> findBookIdsDeletedAfter(Instant since);
+
+    /**
+     * Deletes the tombstones of the books removed before the given time.
+     *
+     * @param before the time before which the tombstones are no longer needed
+     * @return the number of deleted tombstones
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from BookTombstone t where t.deletedAt < ?1")
+    int deleteDeletedBefore(Instant before);
+}
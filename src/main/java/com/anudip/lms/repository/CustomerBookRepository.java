@@ -0,0 +1,49 @@
+package com.anudip.lms.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.anudip.lms.dto.CheckoutItem;
+import com.anudip.lms.dto.CheckoutItemResult;
+import com.anudip.lms.dto.CheckoutResult;
+
+/**
+ * Operations on the "customer_book" join table that records which customers
+ * have checked out which books.
+ * 
+ * These operations work on the join table directly instead of through the
+ * {@code books} and {@code customers} collections of the entities, so their
+ * cost does not depend on how many books a customer or how many customers a
+ * book already has.
+ * 
+ * @since v1.1
+ * @see CustomerRepository
+ */
+public interface CustomerBookRepository {
+
+    /**
+     * Checks the given book out to the given customer.
+     * 
+     * The link is inserted by a single idempotent statement that only inserts it
+     * if both the customer and the book exist. Only when nothing was inserted are
+     * the two ids looked up to tell why.
+     * 
+     * @param customerId the UUID of the customer
+     * @param bookId     the ID of the book
+     * @return the outcome of the checkout
+     */
+    CheckoutResult link(UUID customerId, int bookId);
+
+    /**
+     * Checks out every given book to its customer in one transaction.
+     * 
+     * All customer ids and all book ids are checked with one query each, the
+     * existing links among them with a third, and the new links are inserted in
+     * a single JDBC batch. An item that repeats an earlier item of the same
+     * batch is reported as {@link CheckoutResult#ALREADY_LINKED}.
+     * 
+     * @param items the books to check out and their customers
+     * @return the outcome of each item, in the order of the items
+     */
+    List<CheckoutItemResult> linkAll(List<CheckoutItem> items);
+}
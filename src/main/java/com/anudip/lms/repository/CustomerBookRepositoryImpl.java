@@ -0,0 +1,142 @@
+package com.anudip.lms.repository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.anudip.lms.dto.CheckoutItem;
+import com.anudip.lms.dto.CheckoutItemResult;
+import com.anudip.lms.dto.CheckoutResult;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * The implementation of {@link CustomerBookRepository} used by
+ * {@link CustomerRepository}.
+ * 
+ * @since v1.1
+ */
+public class CustomerBookRepositoryImpl implements CustomerBookRepository {
+
+    /** Inserts the link unless it exists, and only if both ends exist. */
+    private static final String LINK = "INSERT IGNORE INTO customer_book (customer_id, book_id) "
+            + "SELECT c.id, b.id FROM customers c, books b WHERE c.id = ?1 AND b.id = ?2";
+
+    /** Counts the customer and the book with the given ids. */
+    private static final String EXISTS = "SELECT (SELECT COUNT(*) FROM customers WHERE id = ?1), "
+            + "(SELECT COUNT(*) FROM books WHERE id = ?2)";
+
+    /** Inserts one link of a batch; links inserted concurrently are skipped. */
+    private static final String INSERT_LINK = "INSERT IGNORE INTO customer_book (customer_id, book_id) VALUES (?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public CheckoutResult link(UUID customerId, int bookId) {
+        byte[] customer = toBytes(customerId);
+        int inserted = entityManager.createNativeQuery(LINK)
+                .setParameter(1, customer)
+                .setParameter(2, bookId)
+                .unwrap(NativeQuery.class)
+                // only the join table changes, so no cached entity needs to be evicted
+                .addSynchronizedQuerySpace("customer_book")
+                .executeUpdate();
+        if (inserted > 0) {
+            return CheckoutResult.LINKED;
+        }
+
+        Object[] counts = (Object[]) entityManager.createNativeQuery(EXISTS)
+                .setParameter(1, customer)
+                .setParameter(2, bookId)
+                .getSingleResult();
+        if (((Number) counts[0]).intValue() == 0) {
+            return CheckoutResult.MISSING_CUSTOMER;
+        } else if (((Number) counts[1]).intValue() == 0) {
+            return CheckoutResult.MISSING_BOOK;
+        } else {
+            return CheckoutResult.ALREADY_LINKED;
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<CheckoutItemResult> linkAll(List<CheckoutItem> items) {
+        Set<UUID> customerIds = items.stream().map(CheckoutItem::customerId).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Integer> bookIds = items.stream().map(CheckoutItem::bookId).collect(Collectors.toSet());
+        if (customerIds.isEmpty() || bookIds.isEmpty()) {
+            return items.stream().map(item -> new CheckoutItemResult(item.customerId(), item.bookId(),
+                    CheckoutResult.MISSING_CUSTOMER)).toList();
+        }
+
+        Set<UUID> customers = new HashSet<>(entityManager
+                .createQuery("select c.id from Customer c where c.id in :ids", UUID.class)
+                .setParameter("ids", customerIds)
+                .getResultList());
+        Set<Integer> books = new HashSet<>(entityManager
+                .createQuery("select b.id from Book b where b.id in :ids", Integer.class)
+                .setParameter("ids", bookIds)
+                .getResultList());
+        Set<CheckoutItem> linked = new HashSet<>();
+        if (!customers.isEmpty() && !books.isEmpty()) {
+            for (Object[] link : entityManager
+                    .createQuery("select c.id, b.id from Customer c join c.books b "
+                            + "where c.id in :customers and b.id in :books", Object[].class)
+                    .setParameter("customers", customers)
+                    .setParameter("books", books)
+                    .getResultList()) {
+                linked.add(new CheckoutItem((UUID) link[0], (Integer) link[1]));
+            }
+        }
+
+        List<CheckoutItemResult> results = new ArrayList<>(items.size());
+        List<Object[]> inserts = new ArrayList<>();
+        for (CheckoutItem item : items) {
+            CheckoutResult result;
+            if (!customers.contains(item.customerId())) {
+                result = CheckoutResult.MISSING_CUSTOMER;
+            } else if (!books.contains(item.bookId())) {
+                result = CheckoutResult.MISSING_BOOK;
+            } else if (!linked.add(item)) {
+                // linked before, or by an earlier item of this batch
+                result = CheckoutResult.ALREADY_LINKED;
+            } else {
+                result = CheckoutResult.LINKED;
+                inserts.add(new Object[] { toBytes(item.customerId()), item.bookId() });
+            }
+            results.add(new CheckoutItemResult(item.customerId(), item.bookId(), result));
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LINK, inserts);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the 16 bytes of the given UUID in the big-endian order they are
+     * stored in.
+     */
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -15,10 +15,12 @@ import com.anudip.lms.model.Customer;
  * system, and the primary key of the Customer entity is a UUID (universally
  * unique identifier).
  * 
+ * Checkouts are recorded through {@link CustomerBookRepository}.
+ * 
  * @since v1.0
  * @see Customer
  * @see JpaRepository
  */
-public interface CustomerRepository extends JpaRepository<Customer, UUID> {
+public interface CustomerRepository extends JpaRepository<Customer, UUID>, CustomerBookRepository {
 
 }
@@ -0,0 +1,142 @@
+package com.anudip.lms.repository;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.anudip.lms.dto.BookSummary;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking read access to the books table for the reactive read server.
+ * 
+ * Queries run over R2DBC on a connection pool of their own, separate from the
+ * JDBC pool used by JPA. Rows are emitted as they arrive from the database and
+ * only as fast as the subscriber requests them, so no result is held in
+ * memory as a whole. Books are read as summaries, without their customers,
+ * like the book lists of the blocking server.
+ * 
+ * @since v1.1
+ * @see BookRepository
+ */
+@Repository
+@ConditionalOnProperty(name = "lms.reactive.enabled", havingValue = "true")
+public class ReactiveBookRepository {
+
+    /** The columns of a book, in the order read by {@link #toSummary}. */
+    private static final String COLUMNS = "id, name, author, category, description, price";
+
+    private final ConnectionPool pool;
+
+    private final DatabaseClient client;
+
+    /**
+     * Constructs a new {@code ReactiveBookRepository} with its own connection
+     * pool.
+     * 
+     * @param url      the R2DBC URL of the database
+     * @param username the database user
+     * @param password the password of the database user
+     * @param poolSize the maximum number of open connections
+     */
+    public ReactiveBookRepository(@Value("${lms.reactive.r2dbc.url}") String url,
+            @Value("${lms.reactive.r2dbc.username}") String username,
+            @Value("${lms.reactive.r2dbc.password}") String password,
+            @Value("${lms.reactive.r2dbc.pool-size:10}") int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(poolSize)
+                .build());
+        this.client = DatabaseClient.create(pool);
+    }
+
+    /**
+     * Returns every book in ascending id order.
+     * 
+     * @return the books
+     */
+    public Flux<BookSummary> findAll() {
+        return client.sql("SELECT " + COLUMNS + " FROM books ORDER BY id")
+                .map(ReactiveBookRepository::toSummary)
+                .all();
+    }
+
+    /**
+     * Returns the book with the given id.
+     * 
+     * @param id the id of the book
+     * @return the book, or an empty {@code Mono} if there is no such book
+     */
+    public Mono<BookSummary> findById(int id) {
+        return client.sql("SELECT " + COLUMNS + " FROM books WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveBookRepository::toSummary)
+                .one();
+    }
+
+    /**
+     * Returns the books with the given ids, in no particular order.
+     * 
+     * @param ids the ids of the books
+     * @return the books that exist
+     */
+    public Flux<BookSummary> findAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql("SELECT " + COLUMNS + " FROM books WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .map(ReactiveBookRepository::toSummary)
+                .all();
+    }
+
+    /**
+     * Returns one page of the books whose name, author or description match the
+     * given MySQL boolean-mode full-text query, most relevant first.
+     * 
+     * @param booleanQuery the full-text query, e.g. {@code "+harry +potter"}
+     * @param offset       the number of matches to skip
+     * @param limit        the maximum number of matches to return
+     * @return the matching books
+     * @see BookRepository#searchFullText(String, int, int)
+     */
+    public Flux<BookSummary> searchFullText(String booleanQuery, int offset, int limit) {
+        return client.sql("SELECT " + COLUMNS + ", MATCH(name, author, description) AGAINST (:q IN BOOLEAN MODE) AS score "
+                + "FROM books WHERE MATCH(name, author, description) AGAINST (:q IN BOOLEAN MODE) "
+                + "ORDER BY score DESC, id LIMIT :limit OFFSET :offset")
+                .bind("q", booleanQuery)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveBookRepository::toSummary)
+                .all();
+    }
+
+    /**
+     * Closes the connection pool.
+     */
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+
+    private static BookSummary toSummary(Readable row) {
+        Integer price = row.get("price", Integer.class);
+        return new BookSummary(row.get("id", Integer.class), row.get("name", String.class),
+                row.get("author", String.class), row.get("category", String.class),
+                row.get("description", String.class), price == null ? 0 : price);
+    }
+}
@@ -1,15 +1,25 @@
 package com.anudip.lms.security;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpBasicServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
 
 import com.anudip.lms.authentication.AdminDetails;
+import com.anudip.lms.controller.ReactiveServer;
 
 /**
  * Configuration class for in-memory authentication.
@@ -63,6 +73,47 @@ public class SecurityConfiguration {
     @Bean
     @Primary
     AuthenticationManagerBuilder configure(AuthenticationManagerBuilder auth) throws Exception {
+        for (UserDetails user : adminUsers()) {
+            auth.inMemoryAuthentication().withUser(user);
+        }
+        return auth;
+    }
+
+    /**
+     * Returns the security filter chain of the {@link ReactiveServer}.
+     * 
+     * Every request must carry the HTTP Basic credentials of one of the same
+     * admins the servlet side authenticates, checked with the same password
+     * encoder. Nothing is kept between requests, so there is no session and no
+     * CSRF token.
+     * 
+     * @return the filter chain
+     * @since v1.1
+     */
+    @Bean
+    @ConditionalOnProperty(name = "lms.reactive.enabled", havingValue = "true")
+    SecurityWebFilterChain reactiveSecurityFilterChain() {
+        HttpBasicServerAuthenticationEntryPoint entryPoint = new HttpBasicServerAuthenticationEntryPoint();
+        entryPoint.setRealm("lms");
+        return ServerHttpSecurity.http()
+                .authenticationManager(new UserDetailsRepositoryReactiveAuthenticationManager(
+                        new MapReactiveUserDetailsService(adminUsers())))
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchanges -> exchanges.anyExchange().hasRole("ADMIN"))
+                .httpBasic(basic -> basic.authenticationEntryPoint(entryPoint))
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(entryPoint))
+                .csrf(csrf -> csrf.disable())
+                .formLogin(formLogin -> formLogin.disable())
+                .logout(logout -> logout.disable())
+                .build();
+    }
+
+    /**
+     * Returns the admins, with their passwords encoded by the default password
+     * encoder.
+     */
+    private List<UserDetails> adminUsers() {
+        List<UserDetails> users = new ArrayList<>(admins.size());
         for (Map.Entry<String, String> entry : admins.entrySet()) {
             String username = entry.getKey();
             String password = entry.getValue();
@@ -71,8 +122,8 @@ public class SecurityConfiguration {
                     .password(password)
                     .roles("ADMIN")
                     .build();
-            auth.inMemoryAuthentication().withUser(user);
+            users.add(user);
         }
-        return auth;
+        return users;
     }
 }
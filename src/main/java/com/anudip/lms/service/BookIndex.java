@@ -0,0 +1,592 @@
+package com.anudip.lms.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.model.BookField;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * An in-memory inverted index over the name, author and description of every
+ * {@link Book} in the catalogue.
+ *
+ * Each token maps to the ids of the books that contain it, in ascending order,
+ * together with how often it occurs in each {@link BookField}. A keyword query
+ * only touches the posting lists of its own tokens instead of the whole
+ * catalogue, and every match is scored with BM25F using the configured field
+ * weights. Tokens are normalized by the {@link TextNormalizer}, both when a
+ * book is indexed and when a keyword is parsed, so case and accents do not
+ * matter.
+ *
+ * The tokens are kept in a sorted term dictionary, so the last token of a
+ * keyword also matches every term it is a prefix of ("tolk" finds "tolkien"),
+ * and a token that matches no term at all is expanded to the terms within a
+ * small edit distance of it ("dostoyevsky" finds "dostoevsky"). Expanded terms
+ * score lower than exact ones. The index is built once at startup, from the
+ * catalogue loaded by the {@link CatalogueStore}, and kept up to date by the
+ * {@link Search} service whenever a book is saved or removed. When search is
+ * pushed down to the database the index is left empty.
+ *
+ * @since v1.1
+ * @see Search
+ */
+@Component
+public class BookIndex {
+
+    /** The BM25 term frequency saturation parameter. */
+    private static final double K1 = 1.2;
+
+    /** The BM25 field length normalization parameter. */
+    private static final double B = 0.75;
+
+    private static final int FIELDS = BookField.values().length;
+
+    /** The score factor of a term matched as a completion of a prefix. */
+    private static final double PREFIX_BOOST = 0.8;
+
+    /** The score factor of a term matched within an edit distance. */
+    private static final double FUZZY_BOOST = 0.6;
+
+    /** The maximum number of terms a single token is expanded to. */
+    private static final int MAX_EXPANSIONS = 50;
+
+    /** A term a query token was expanded to, with its posting list. */
+    private record Term(String term, NavigableMap<Integer, int[]> postings, double boost) {
+    }
+
+    /** The tokens and field lengths of an indexed book. */
+    private static final class Document {
+        private final Set<String> tokens;
+        private final int[] lengths;
+
+        private Document(Set<String> tokens, int[] lengths) {
+            this.tokens = tokens;
+            this.lengths = lengths;
+        }
+    }
+
+    /**
+     * The sorted term dictionary. Maps each token to the ids of the books
+     * containing it, in id order, and each id to the number of occurrences of the
+     * token per field.
+     */
+    private final NavigableMap<String, NavigableMap<Integer, int[]>> postings = new TreeMap<>();
+
+    /** Maps each indexed book id to its tokens and field lengths. */
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    /** The sum of the lengths of each field over all indexed books. */
+    private final long[] totalLengths = new long[FIELDS];
+
+    /** The weight of each field in the score, indexed by field ordinal. */
+    private final double[] weights = new double[FIELDS];
+
+    /** Guards {@link #postings}, {@link #documents} and {@link #totalLengths}. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    private CatalogueStore catalogueStore;
+
+    @Value("${lms.search.strategy:INDEX}")
+    private SearchStrategy strategy;
+
+    /**
+     * Sets the weight of a match in the name of a book.
+     *
+     * @param weight the weight of the name field
+     */
+    @Value("${lms.search.weight.name:3.0}")
+    public void setNameWeight(double weight) {
+        weights[BookField.NAME.ordinal()] = weight;
+    }
+
+    /**
+     * Sets the weight of a match in the author of a book.
+     *
+     * @param weight the weight of the author field
+     */
+    @Value("${lms.search.weight.author:2.0}")
+    public void setAuthorWeight(double weight) {
+        weights[BookField.AUTHOR.ordinal()] = weight;
+    }
+
+    /**
+     * Sets the weight of a match in the description of a book.
+     *
+     * @param weight the weight of the description field
+     */
+    @Value("${lms.search.weight.description:1.0}")
+    public void setDescriptionWeight(double weight) {
+        weights[BookField.DESCRIPTION.ordinal()] = weight;
+    }
+
+    /**
+     * Builds the index from every book currently in the catalogue, if searches
+     * use the index.
+     */
+    @PostConstruct
+    public void build() {
+        if (strategy == SearchStrategy.INDEX) {
+            rebuild(catalogueStore.load());
+        }
+    }
+
+    /**
+     * Discards the current index and rebuilds it from the given books.
+     *
+     * @param books the books to index
+     */
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            Arrays.fill(totalLengths, 0);
+            for (Book book : books) {
+                addInternal(BookSummary.of(book));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the current index and rebuilds it from the books of the given
+     * catalogue snapshot.
+     *
+     * @param catalogue the books to index
+     */
+    public void rebuild(CatalogueSnapshot catalogue) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            Arrays.fill(totalLengths, 0);
+            catalogue.forEach(this::addInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the given book to the index, replacing any previous entry with the
+     * same id.
+     *
+     * @param book the book to index
+     * @return the tokens the book was previously indexed under, or an empty set
+     *         if it was not indexed
+     */
+    public Set<String> add(Book book) {
+        lock.writeLock().lock();
+        try {
+            Set<String> previous = removeInternal(book.getId());
+            addInternal(BookSummary.of(book));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the book with the given id from the index.
+     *
+     * @param id the id of the book to remove
+     * @return the tokens the book was indexed under, or an empty set if it was not
+     *         indexed
+     */
+    public Set<String> remove(int id) {
+        lock.writeLock().lock();
+        try {
+            return removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a book with the given id is indexed.
+     *
+     * @param id the id of the book
+     * @return true if the book is indexed, false otherwise
+     */
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return documents.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the books that contain every token of the given keyword, or a term
+     * the token expands to, in their name, author or description, each with its
+     * BM25F score.
+     *
+     * Matching is a single pass over the candidates of the token with the
+     * shortest posting lists, which also collects the fields any token of the
+     * keyword occurs in.
+     *
+     * @param keyword the keyword to search for
+     * @return the matching books in ascending id order, or an empty list if no
+     *         book matches
+     */
+    public List<BookMatch> search(String keyword) {
+        List<String> tokens = new ArrayList<>(tokenize(keyword));
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // expand every token to the terms it matches, bailing out early if any
+            // token matches nothing since no book can then contain all of them
+            List<List<Term>> groups = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                List<Term> group = expand(tokens.get(i), i == tokens.size() - 1);
+                if (group.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                groups.add(group);
+            }
+            groups.sort(Comparator.comparingInt(BookIndex::postingCount));
+
+            // the collection statistics are the same for every candidate
+            int count = documents.size();
+            double[] averageLengths = new double[FIELDS];
+            for (int f = 0; f < FIELDS; f++) {
+                averageLengths[f] = Math.max(1.0, (double) totalLengths[f] / count);
+            }
+            List<double[]> idf = new ArrayList<>(groups.size());
+            for (List<Term> group : groups) {
+                double[] values = new double[group.size()];
+                for (int t = 0; t < values.length; t++) {
+                    int df = group.get(t).postings().size();
+                    values[t] = Math.log(1 + (count - df + 0.5) / (df + 0.5));
+                }
+                idf.add(values);
+            }
+
+            // walk the candidates of the rarest token and score the ids found for
+            // all others, keeping the best scoring term of each token
+            List<BookMatch> result = new ArrayList<>();
+            for (Integer id : candidates(groups.get(0))) {
+                int[] lengths = documents.get(id).lengths;
+                int fields = 0;
+                double score = 0;
+                for (int i = 0; i < groups.size(); i++) {
+                    List<Term> group = groups.get(i);
+                    double best = -1;
+                    for (int t = 0; t < group.size(); t++) {
+                        int[] frequencies = group.get(t).postings().get(id);
+                        if (frequencies == null) {
+                            continue;
+                        }
+
+                        // BM25F: saturate the length-normalized, weighted frequency
+                        double weighted = 0;
+                        for (int f = 0; f < FIELDS; f++) {
+                            if (frequencies[f] > 0) {
+                                fields |= 1 << f;
+                                weighted += weights[f] * frequencies[f]
+                                        / (1 - B + B * lengths[f] / averageLengths[f]);
+                            }
+                        }
+                        best = Math.max(best, group.get(t).boost() * idf.get(i)[t] * weighted / (K1 + weighted));
+                    }
+                    if (best < 0) {
+                        fields = 0;
+                        break;
+                    }
+                    score += best;
+                }
+                if (fields != 0) {
+                    result.add(new BookMatch(id, fields, score));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns completions of the last token of the given text, most common first.
+     *
+     * Each suggestion is the text with its last token replaced by a term from the
+     * dictionary that starts with it, or, if there is none, a term within a small
+     * edit distance of it.
+     *
+     * @param text  the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, or an empty list if there are none
+     */
+    public List<String> suggest(String text, int limit) {
+        List<String> tokens = new ArrayList<>(tokenize(text));
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String head = String.join(" ", tokens.subList(0, tokens.size() - 1));
+
+        lock.readLock().lock();
+        try {
+            List<Term> terms = expand(tokens.get(tokens.size() - 1), true);
+            terms.sort(Comparator.comparingDouble(Term::boost).reversed()
+                    .thenComparing(Comparator.comparingInt((Term term) -> term.postings().size()).reversed()));
+
+            List<String> suggestions = new ArrayList<>(Math.min(limit, terms.size()));
+            for (Term term : terms.subList(0, Math.min(limit, terms.size()))) {
+                suggestions.add(head.isEmpty() ? term.term() : head + " " + term.term());
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether the given query token matches the given term under the
+     * rules {@link #search(String)} uses to expand tokens.
+     *
+     * The fuzzy rule is applied even when the token also matches some other term
+     * exactly, so this may report a match the search would not make, but never
+     * the other way round. Like the search, it only considers typos in terms
+     * that start with the same character as the token.
+     *
+     * @param token  the query token
+     * @param term   the term of a book
+     * @param prefix whether the token is the last of its keyword and may match as
+     *               a prefix
+     * @return true if a book containing the term could match the token
+     */
+    public static boolean matches(String token, String term, boolean prefix) {
+        return token.equals(term)
+                || (prefix && term.startsWith(token))
+                || (!token.isEmpty() && !term.isEmpty() && token.charAt(0) == term.charAt(0)
+                        && withinEdits(token, term, maxEdits(token)));
+    }
+
+    /**
+     * Returns the terms the given query token matches: the token itself if it is
+     * in the dictionary, the most common terms it is a prefix of if prefix
+     * matching applies, or failing both, the terms within a small edit distance.
+     * Tokens too short to tolerate a typo are not looked up that way at all.
+     *
+     * Must be called under the read lock.
+     */
+    private List<Term> expand(String token, boolean prefix) {
+        List<Term> terms = new ArrayList<>();
+        NavigableMap<Integer, int[]> exact = postings.get(token);
+        if (exact != null) {
+            terms.add(new Term(token, exact, 1.0));
+        }
+
+        if (prefix) {
+            Comparator<Map.Entry<String, NavigableMap<Integer, int[]>>> byFrequency = Comparator
+                    .comparingInt(entry -> entry.getValue().size());
+            PriorityQueue<Map.Entry<String, NavigableMap<Integer, int[]>>> completions = new PriorityQueue<>(
+                    byFrequency);
+            for (Map.Entry<String, NavigableMap<Integer, int[]>> entry : postings
+                    .subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                completions.add(entry);
+                if (completions.size() > MAX_EXPANSIONS) {
+                    completions.poll();
+                }
+            }
+            for (Map.Entry<String, NavigableMap<Integer, int[]>> entry : completions) {
+                terms.add(new Term(entry.getKey(), entry.getValue(), PREFIX_BOOST));
+            }
+        }
+
+        int edits = maxEdits(token);
+        if (terms.isEmpty() && edits > 0) {
+            // only terms sharing the first character are considered, which keeps
+            // the scan to a small slice of the dictionary
+            String first = token.substring(0, 1);
+            for (Map.Entry<String, NavigableMap<Integer, int[]>> entry : postings
+                    .subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+                if (withinEdits(token, entry.getKey(), edits)) {
+                    terms.add(new Term(entry.getKey(), entry.getValue(), FUZZY_BOOST));
+                    if (terms.size() == MAX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Returns the ids of the books containing any term of the given group, in
+     * ascending order.
+     */
+    private static Collection<Integer> candidates(List<Term> group) {
+        if (group.size() == 1) {
+            return group.get(0).postings().keySet();
+        }
+        Set<Integer> ids = new TreeSet<>();
+        for (Term term : group) {
+            ids.addAll(term.postings().keySet());
+        }
+        return ids;
+    }
+
+    private static int postingCount(List<Term> group) {
+        int count = 0;
+        for (Term term : group) {
+            count += term.postings().size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of typos tolerated in a token of the given length: none
+     * for short tokens, where a single edit changes the word entirely.
+     */
+    private static int maxEdits(String token) {
+        if (token.length() < 4) {
+            return 0;
+        }
+        return token.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Checks whether the Levenshtein distance between the given strings is at
+     * most the given bound, giving up as soon as it cannot be.
+     */
+    static boolean withinEdits(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return false;
+        }
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= max;
+    }
+
+    /**
+     * Splits the given text into alphanumeric tokens, normalized by the
+     * {@link TextNormalizer}.
+     *
+     * @param text the text to tokenize, may be null
+     * @return the distinct tokens of the text in order of first occurrence
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(text, tokens);
+        return tokens;
+    }
+
+    /**
+     * Returns the tokens the given book is indexed under.
+     *
+     * @param book the book to tokenize
+     * @return the distinct tokens of the name, author and description of the book
+     */
+    public static Set<String> tokenize(Book book) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (BookField field : BookField.values()) {
+            tokenize(field.of(book), tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds every token of the given text, in order and including repeated ones,
+     * to the given collection. The text is normalized before it is split, so
+     * that accents do not split words.
+     */
+    private static void tokenize(String text, Collection<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        text = TextNormalizer.normalize(text);
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inToken = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    private void addInternal(BookSummary book) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int[] lengths = new int[FIELDS];
+        for (BookField field : BookField.values()) {
+            List<String> occurrences = new ArrayList<>();
+            tokenize(field.of(book), occurrences);
+            lengths[field.ordinal()] = occurrences.size();
+            totalLengths[field.ordinal()] += occurrences.size();
+
+            for (String token : occurrences) {
+                postings.computeIfAbsent(token, t -> new TreeMap<>())
+                        .computeIfAbsent(book.id(), id -> new int[FIELDS])[field.ordinal()]++;
+                tokens.add(token);
+            }
+        }
+        documents.put(book.id(), new Document(tokens, lengths));
+    }
+
+    private Set<String> removeInternal(int id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return Collections.emptySet();
+        }
+
+        for (int f = 0; f < FIELDS; f++) {
+            totalLengths[f] -= document.lengths[f];
+        }
+        for (String token : document.tokens) {
+            NavigableMap<Integer, int[]> list = postings.get(token);
+            list.remove(id);
+            if (list.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+        return document.tokens;
+    }
+}
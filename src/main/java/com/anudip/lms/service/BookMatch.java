@@ -0,0 +1,16 @@
+package com.anudip.lms.service;
+
+import com.anudip.lms.model.BookField;
+
+/**
+ * A book matched by a keyword search, identified by id.
+ * 
+ * @param bookId the id of the matched book
+ * @param fields the mask of the {@link BookField}s the keyword matched in
+ * @param score  the relevance of the book to the keyword; higher is better
+ * 
+ * @since v1.1
+ * @see BookIndex
+ */
+public record BookMatch(int bookId, int fields, double score) {
+}
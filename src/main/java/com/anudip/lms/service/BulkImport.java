@@ -0,0 +1,139 @@
+package com.anudip.lms.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+
+import com.anudip.lms.dao.BookDao;
+import com.anudip.lms.dao.CustomerDao;
+import com.anudip.lms.dto.ImportResult;
+import com.anudip.lms.dto.ImportResult.RecordFailure;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.model.Customer;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The BulkImport service loads large numbers of books or customers from a
+ * single request.
+ * 
+ * The request body is read as a stream, either as one JSON array or as
+ * newline-delimited JSON, and the records are saved in batches of the
+ * configured size. Only one batch is held in memory at a time. If a batch
+ * cannot be saved as a whole, its records are saved one by one so that every
+ * failing record can be reported.
+ * 
+ * @since v1.1
+ */
+@Service
+public class BulkImport {
+
+    @Autowired
+    private BookDao bookDao;
+
+    @Autowired
+    private CustomerDao customerDao;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${lms.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Imports the books read from the given stream.
+     * 
+     * @param in the JSON array or newline-delimited JSON of books
+     * @return the outcome of the import
+     * @throws IOException if the stream cannot be read
+     */
+    public ImportResult importBooks(InputStream in) throws IOException {
+        return importRecords(in, Book.class, bookDao::addBooks);
+    }
+
+    /**
+     * Imports the customers read from the given stream.
+     * 
+     * @param in the JSON array or newline-delimited JSON of customers
+     * @return the outcome of the import
+     * @throws IOException if the stream cannot be read
+     */
+    public ImportResult importCustomers(InputStream in) throws IOException {
+        return importRecords(in, Customer.class, customerDao::addCustomers);
+    }
+
+    private <T> ImportResult importRecords(InputStream in, Class<T> type, Consumer<List<T>> writer)
+            throws IOException {
+        List<T> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        List<RecordFailure> failures = new ArrayList<>();
+        int received = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            // a JSON array holds the records; otherwise they follow each other as
+            // separate top-level values, one per line
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+                JsonNode node = parser.readValueAsTree();
+                int index = received++;
+                try {
+                    batch.add(objectMapper.treeToValue(node, type));
+                    batchIndexes.add(index);
+                } catch (JsonProcessingException e) {
+                    failures.add(new RecordFailure(index, e.getOriginalMessage()));
+                }
+
+                if (batch.size() == batchSize) {
+                    write(batch, batchIndexes, writer, failures);
+                }
+                token = parser.nextToken();
+            }
+        } catch (JsonParseException e) {
+            // the stream cannot be resynchronized after a syntax error
+            failures.add(new RecordFailure(received++, "Malformed JSON: " + e.getOriginalMessage()));
+        }
+
+        write(batch, batchIndexes, writer, failures);
+        return new ImportResult(received, received - failures.size(), failures);
+    }
+
+    /**
+     * Saves and empties the given batch, falling back to saving its records one
+     * by one if the batch as a whole fails.
+     */
+    private <T> void write(List<T> batch, List<Integer> indexes, Consumer<List<T>> writer,
+            List<RecordFailure> failures) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            writer.accept(batch);
+        } catch (RuntimeException batchFailure) {
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    writer.accept(List.of(batch.get(i)));
+                } catch (RuntimeException e) {
+                    failures.add(new RecordFailure(indexes.get(i), NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+                }
+            }
+        }
+        batch.clear();
+        indexes.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package com.anudip.lms.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.anudip.lms.dto.CacheRegionStats;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * The CacheStatistics service reports the hit, miss and eviction counters of
+ * the second-level cache regions, so that their size and time-to-live can be
+ * tuned.
+ * 
+ * Hit, miss and put counts come from the Hibernate statistics; eviction counts
+ * come from the JCache statistics MBean of each region.
+ * 
+ * @since v1.1
+ */
+@Service
+public class CacheStatistics {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Returns the current counters of every second-level cache region.
+     * 
+     * @return a snapshot of the counters of each cache region
+     */
+    public List<CacheRegionStats> getRegionStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        List<CacheRegionStats> regions = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+            // providers that cannot count their entries report a negative size
+            long size = Math.max(-1, stats.getElementCountInMemory());
+            regions.add(new CacheRegionStats(region, size, stats.getHitCount(),
+                    stats.getMissCount(), stats.getPutCount(), getEvictions(region)));
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the number of evictions of the given region as reported by its
+     * JCache statistics MBean.
+     * 
+     * @param region the name of the cache region
+     * @return the number of evictions, or -1 if the MBean is not registered
+     */
+    private long getEvictions(String region) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                if (region.equals(name.getKeyProperty("Cache"))) {
+                    return (Long) server.getAttribute(name, "CacheEvictions");
+                }
+            }
+        } catch (Exception e) {
+            // statistics are best effort; fall through to report them as unavailable
+        }
+        return -1;
+    }
+}
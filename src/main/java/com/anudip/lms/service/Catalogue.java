@@ -0,0 +1,220 @@
+package com.anudip.lms.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.BookField;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Holds the current {@link CatalogueSnapshot} of the book catalogue for the
+ * {@link SearchStrategy#SCAN} search strategy.
+ *
+ * The snapshot is loaded once at startup by the {@link CatalogueStore}, and patched
+ * by the {@link Search} service whenever a book is saved or removed. Each change
+ * produces a new snapshot that is swapped in atomically, so searches read the
+ * current snapshot without taking a lock and never see a half-applied change.
+ * Once enough books have been saved since the last compaction, the changes are
+ * merged into a new base segment. Large snapshots are scanned in parallel by
+ * the {@link CatalogueScanPool}, with the vector {@link SubstringMatcher} when
+ * the JVM offers the Vector API. With the other strategies the catalogue is
+ * left empty.
+ *
+ * The number of books and the bytes taken by the snapshot are published as
+ * {@code lms.catalogue.books} and {@code lms.catalogue.bytes}.
+ *
+ * @since v1.1
+ * @see Search
+ */
+@Component
+public class Catalogue {
+
+    private static final Logger log = LoggerFactory.getLogger(Catalogue.class);
+
+    private final AtomicReference<CatalogueSnapshot> current = new AtomicReference<>(CatalogueSnapshot.EMPTY);
+
+    /** The weight of each field in the score, indexed by field ordinal. */
+    private final double[] weights = new double[BookField.values().length];
+
+    @Autowired
+    private CatalogueStore catalogueStore;
+
+    @Autowired
+    private CatalogueScanPool scanPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${lms.search.strategy:INDEX}")
+    private SearchStrategy strategy;
+
+    /** Finds the tokens of a keyword in the text of the snapshot. */
+    private SubstringMatcher matcher = SubstringMatcher.SCALAR;
+
+    /** The number of changed books after which the snapshot is compacted. */
+    @Value("${lms.search.scan.max-delta:1024}")
+    private int maxDelta = 1024;
+
+    /**
+     * Sets the weight of a match in the name of a book.
+     *
+     * @param weight the weight of the name field
+     */
+    @Value("${lms.search.weight.name:3.0}")
+    public void setNameWeight(double weight) {
+        weights[BookField.NAME.ordinal()] = weight;
+    }
+
+    /**
+     * Sets the weight of a match in the author of a book.
+     *
+     * @param weight the weight of the author field
+     */
+    @Value("${lms.search.weight.author:2.0}")
+    public void setAuthorWeight(double weight) {
+        weights[BookField.AUTHOR.ordinal()] = weight;
+    }
+
+    /**
+     * Sets the weight of a match in the description of a book.
+     *
+     * @param weight the weight of the description field
+     */
+    @Value("${lms.search.weight.description:1.0}")
+    public void setDescriptionWeight(double weight) {
+        weights[BookField.DESCRIPTION.ordinal()] = weight;
+    }
+
+    /**
+     * Sets the matcher that finds the tokens of a keyword in the text of the
+     * books.
+     *
+     * @param name {@code scalar}, {@code vector} or {@code auto}
+     * @see SubstringMatcher#named(String)
+     */
+    @Value("${lms.search.scan.matcher:auto}")
+    public void setMatcher(String name) {
+        matcher = SubstringMatcher.named(name);
+    }
+
+    /**
+     * Loads the snapshot of every book currently in the catalogue, if searches
+     * scan it, and registers its gauges.
+     */
+    @PostConstruct
+    public void build() {
+        if (strategy == SearchStrategy.SCAN) {
+            current.set(catalogueStore.load());
+            log.info("Scanning the catalogue with the {} substring matcher", matcher);
+        }
+        Gauge.builder("lms.catalogue.books", current, snapshot -> snapshot.get().size())
+                .description("Books in the search catalogue snapshot")
+                .register(meterRegistry);
+        Gauge.builder("lms.catalogue.bytes", current, snapshot -> snapshot.get().bytes())
+                .description("Memory taken by the search catalogue snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replaces the snapshot with one of the given books.
+     *
+     * @param books the books of the catalogue
+     */
+    public synchronized void rebuild(Collection<BookSummary> books) {
+        current.set(CatalogueSnapshot.of(books));
+    }
+
+    /**
+     * Returns the current snapshot.
+     *
+     * @return the snapshot of the catalogue
+     */
+    public CatalogueSnapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Adds the given book to the catalogue, replacing any book with the same id.
+     *
+     * @param book the saved book
+     * @return the book it replaced, or null if it is new
+     */
+    public synchronized BookSummary put(BookSummary book) {
+        CatalogueSnapshot snapshot = current.get();
+        BookSummary previous = snapshot.get(book.id());
+        swap(snapshot.with(book));
+        return previous;
+    }
+
+    /**
+     * Removes the book with the given id from the catalogue.
+     *
+     * @param id the id of the removed book
+     * @return the removed book, or null if it was not in the catalogue
+     */
+    public synchronized BookSummary remove(int id) {
+        CatalogueSnapshot snapshot = current.get();
+        BookSummary previous = snapshot.get(id);
+        swap(snapshot.without(id));
+        return previous;
+    }
+
+    /**
+     * Returns the books whose name, author or description contains every token
+     * of the given keyword.
+     *
+     * @param keyword the keyword to search for
+     * @return the matching books in ascending id order, or an empty list if no
+     *         book matches
+     * @see CatalogueScanPool
+     */
+    public List<BookMatch> search(String keyword) {
+        return scanPool.search(current.get(), keyword, weights, matcher);
+    }
+
+    /**
+     * Returns completions of the last word of the given text, found by scanning
+     * the current snapshot.
+     *
+     * @param text  the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return the text with its last word replaced by each completion, or an
+     *         empty list if there are none
+     * @see CatalogueSnapshot#complete(String, int, SubstringMatcher)
+     */
+    public List<String> suggest(String text, int limit) {
+        List<String> tokens = new ArrayList<>(BookIndex.tokenize(text));
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String head = String.join(" ", tokens.subList(0, tokens.size() - 1));
+
+        List<String> suggestions = new ArrayList<>();
+        for (String word : current.get().complete(tokens.get(tokens.size() - 1), limit, matcher)) {
+            suggestions.add(head.isEmpty() ? word : head + " " + word);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Publishes the given snapshot, compacting it first if its delta has grown
+     * too large. Must be called while holding the lock of this catalogue.
+     */
+    private void swap(CatalogueSnapshot snapshot) {
+        current.set(snapshot.deltaSize() > maxDelta ? snapshot.compact() : snapshot);
+    }
+}
@@ -0,0 +1,110 @@
+package com.anudip.lms.service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs scans of large catalogue snapshots in parallel, on a fork-join pool of
+ * their own.
+ *
+ * The pool is separate from the common pool, so a burst of searches cannot
+ * starve parallel streams or other work elsewhere in the application, and it
+ * never grows past its parallelism, even while tasks wait on each other.
+ * Snapshots below the threshold are scanned on the calling thread, where
+ * splitting the work would cost more than it saves. The threads of the pool
+ * are only started once a large snapshot is scanned.
+ *
+ * Unless it is configured, the threshold follows from the machine: on a single
+ * processor the chunks of a split scan would only run one after another, so
+ * scans are never split, and otherwise they are split from two chunks on, the
+ * smallest scan that can be split at all. A scan costs roughly 40 ns a book, so
+ * two default chunks already take over half a millisecond, well above the cost
+ * of handing them to the pool.
+ *
+ * @since v1.1
+ * @see CatalogueSnapshot#search(String, double[], SubstringMatcher, ForkJoinPool, int)
+ */
+@Component
+public class CatalogueScanPool {
+
+    private final ForkJoinPool pool;
+
+    private final int threshold;
+
+    private final int chunkRows;
+
+    /**
+     * Constructs a new {@code CatalogueScanPool}.
+     *
+     * @param parallelism the number of threads of the pool, or 0 for one per
+     *                    processor
+     * @param threshold   the number of books from which snapshots are scanned
+     *                    in parallel, or 0 to derive it from the processors and
+     *                    the chunk size
+     * @param chunkRows   the largest number of books scanned as one task
+     */
+    public CatalogueScanPool(@Value("${lms.search.scan.parallelism:0}") int parallelism,
+            @Value("${lms.search.scan.parallel-threshold:0}") int threshold,
+            @Value("${lms.search.scan.chunk-rows:8192}") int chunkRows) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, CatalogueScanPool::newThread, null, false, 0, threads, 1,
+                p -> true, 60, TimeUnit.SECONDS);
+        this.threshold = threshold > 0 ? threshold
+                : defaultThreshold(Math.min(threads, Runtime.getRuntime().availableProcessors()), chunkRows);
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Returns the number of books from which snapshots are scanned in parallel
+     * when it is not configured.
+     *
+     * @param processors the number of processors the pool can run on at once
+     * @param chunkRows  the largest number of books scanned as one task
+     * @return the threshold, or {@link Integer#MAX_VALUE} to never split a scan
+     */
+    static int defaultThreshold(int processors, int chunkRows) {
+        if (processors <= 1) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, 2L * Math.max(1, chunkRows));
+    }
+
+    /**
+     * Returns the books of the given snapshot that match the given keyword,
+     * scanning in parallel if the snapshot is large enough.
+     *
+     * @param snapshot the snapshot to scan
+     * @param keyword  the keyword to search for
+     * @param weights  the weight of each searched field, indexed by ordinal
+     * @param matcher  the matcher to find the tokens of the keyword with
+     * @return the matching books in ascending id order
+     */
+    public List<BookMatch> search(CatalogueSnapshot snapshot, String keyword, double[] weights,
+            SubstringMatcher matcher) {
+        if (snapshot.size() < threshold) {
+            return snapshot.search(keyword, weights, matcher);
+        }
+        return snapshot.search(keyword, weights, matcher, pool, chunkRows);
+    }
+
+    /**
+     * Stops the threads of the pool.
+     */
+    @PreDestroy
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("catalogue-scan-" + thread.getPoolIndex());
+        return thread;
+    }
+}
@@ -0,0 +1,432 @@
+package com.anudip.lms.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.BookField;
+
+/**
+ * An immutable, column-oriented block of books, sorted by id.
+ *
+ * Ids and prices sit in {@code int} arrays, and the name, author, category and
+ * description of every book are stored one after the other as UTF-8 in a
+ * single byte arena, with the start of each value in an offset array.
+ * Searches do not read the text as stored but a second arena laid out the
+ * same way, with every value normalized by the {@link TextNormalizer} when the
+ * row was added, so a token is found by comparing bytes, without folding case
+ * or decoding characters while scanning.
+ *
+ * A book costs its text twice plus about 40 bytes, against well over a
+ * kilobyte as a managed entity, and a scan over the segment reads a few
+ * contiguous arrays instead of following pointers from object to object.
+ *
+ * @since v1.1
+ * @see CatalogueSnapshot
+ */
+final class CatalogueSegment {
+
+    /** The text columns of a row, in the order they are stored in the arena. */
+    static final int NAME = 0;
+    static final int AUTHOR = 1;
+    static final int CATEGORY = 2;
+    static final int DESCRIPTION = 3;
+    static final int COLUMNS = 4;
+
+    /** The {@link BookField} mask of each text column, 0 if it is not searched. */
+    private static final int[] FIELDS = { BookField.NAME.mask(), BookField.AUTHOR.mask(), 0,
+            BookField.DESCRIPTION.mask() };
+
+    /** A segment without rows. */
+    static final CatalogueSegment EMPTY = new Builder(0).build();
+
+    /** The ids of the rows, in ascending order. */
+    final int[] ids;
+
+    final int[] prices;
+
+    /**
+     * The start of each value in {@link #text}: column {@code c} of row
+     * {@code r} spans {@code offsets[r * COLUMNS + c]} up to the next offset.
+     */
+    final int[] offsets;
+
+    /** The columns of each row that are null, as a bit per column. */
+    final byte[] nulls;
+
+    /** The UTF-8 text of every column of every row. */
+    final byte[] text;
+
+    /** The start of each value in {@link #normalized}, like {@link #offsets}. */
+    final int[] normalizedOffsets;
+
+    /** The normalized UTF-8 text of every column of every row, which is searched. */
+    final byte[] normalized;
+
+    /** Visits a row and the searched fields of it that hold a token. */
+    interface FieldVisitor {
+        void visit(int row, int fields);
+    }
+
+    private CatalogueSegment(int[] ids, int[] prices, int[] offsets, byte[] nulls, byte[] text,
+            int[] normalizedOffsets, byte[] normalized) {
+        this.ids = ids;
+        this.prices = prices;
+        this.offsets = offsets;
+        this.nulls = nulls;
+        this.text = text;
+        this.normalizedOffsets = normalizedOffsets;
+        this.normalized = normalized;
+    }
+
+    /**
+     * Returns a segment over the given columns, as read back from a segment
+     * file.
+     *
+     * @param ids               the ids of the rows, in ascending order
+     * @param prices            the prices of the rows
+     * @param offsets           the start of each value in the arena, and its end
+     * @param nulls             the null columns of each row
+     * @param text              the arena
+     * @param normalizedOffsets the start of each value in the normalized arena,
+     *                          and its end
+     * @param normalized        the normalized arena
+     * @return the segment
+     * @throws IllegalArgumentException if the columns do not fit together
+     */
+    static CatalogueSegment of(int[] ids, int[] prices, int[] offsets, byte[] nulls, byte[] text,
+            int[] normalizedOffsets, byte[] normalized) {
+        int rows = ids.length;
+        if (prices.length != rows || nulls.length != rows || !fits(offsets, rows, text)
+                || !fits(normalizedOffsets, rows, normalized)) {
+            throw new IllegalArgumentException("Inconsistent catalogue segment columns");
+        }
+        return new CatalogueSegment(ids, prices, offsets, nulls, text, normalizedOffsets, normalized);
+    }
+
+    /** Checks whether the given offsets span the given arena for the given rows. */
+    private static boolean fits(int[] offsets, int rows, byte[] arena) {
+        return offsets.length == rows * COLUMNS + 1 && offsets[0] == 0 && offsets[rows * COLUMNS] == arena.length;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of books in this segment
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the row of the book with the given id.
+     *
+     * @param id the id of the book
+     * @return the row, or a negative number if no row has the id
+     */
+    int row(int id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    /**
+     * Returns the value of the given column of the given row.
+     *
+     * @param row    the row
+     * @param column the column
+     * @return the value, may be null
+     */
+    String column(int row, int column) {
+        if ((nulls[row] & (1 << column)) != 0) {
+            return null;
+        }
+        int start = offsets[row * COLUMNS + column];
+        return new String(text, start, offsets[row * COLUMNS + column + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the book in the given row.
+     *
+     * @param row the row
+     * @return the summary of the book, without customers
+     */
+    BookSummary summary(int row) {
+        return new BookSummary(ids[row], column(row, NAME), column(row, AUTHOR), column(row, CATEGORY),
+                column(row, DESCRIPTION), prices[row]);
+    }
+
+    /**
+     * Returns the mask of the searched fields of the given row that contain the
+     * given token.
+     *
+     * The token must be normalized; it is compared with the normalized text of
+     * the row.
+     *
+     * @param row     the row
+     * @param token   the UTF-8 bytes of the token
+     * @param matcher the matcher to find the token with
+     * @return the mask of the {@link BookField}s containing the token
+     */
+    int fieldsContaining(int row, byte[] token, SubstringMatcher matcher) {
+        int fields = 0;
+        for (BookField field : BookField.values()) {
+            int index = row * COLUMNS + column(field);
+            if (matcher.indexOf(normalized, normalizedOffsets[index], normalizedOffsets[index + 1], token) >= 0) {
+                fields |= field.mask();
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Visits, in ascending order, each row in the given range with a searched
+     * field that contains the given token.
+     *
+     * Rather than searching field by field, the matcher runs over the normalized
+     * text of the whole range at once, which is contiguous in the arena, and each
+     * occurrence is mapped back to its row and column. An occurrence that spans
+     * two values is skipped, and after an occurrence the search resumes at the
+     * next value, so a long range without the token costs a single pass of the
+     * matcher.
+     *
+     * @param from    the first row, inclusive
+     * @param to      the last row, exclusive
+     * @param token   the UTF-8 bytes of the normalized token
+     * @param matcher the matcher to find the token with
+     * @param visitor receives each row and the mask of the {@link BookField}s
+     *                containing the token
+     */
+    void forEachRowContaining(int from, int to, byte[] token, SubstringMatcher matcher, FieldVisitor visitor) {
+        int end = normalizedOffsets[to * COLUMNS];
+        int position = normalizedOffsets[from * COLUMNS];
+        int index = from * COLUMNS;
+        int row = -1;
+        int fields = 0;
+        while (true) {
+            int at = matcher.indexOf(normalized, position, end, token);
+            if (at < 0) {
+                break;
+            }
+            index = valueAt(at, index, to * COLUMNS);
+            int valueEnd = normalizedOffsets[index + 1];
+            if (at + token.length > valueEnd) {
+                position = at + 1;
+                continue;
+            }
+            int field = FIELDS[index % COLUMNS];
+            if (field != 0) {
+                if (index / COLUMNS != row) {
+                    if (fields != 0) {
+                        visitor.visit(row, fields);
+                    }
+                    row = index / COLUMNS;
+                    fields = 0;
+                }
+                fields |= field;
+            }
+            position = valueEnd;
+        }
+        if (fields != 0) {
+            visitor.visit(row, fields);
+        }
+    }
+
+    /**
+     * Returns the index of the value holding the given position of the
+     * normalized arena: the last offset from {@code low} up to {@code high} that
+     * is not after it.
+     */
+    private int valueAt(int position, int low, int high) {
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (normalizedOffsets[middle] <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of bytes taken by the arrays of this segment.
+     *
+     * @return the approximate size of this segment in memory
+     */
+    long bytes() {
+        return 4L * ids.length + 4L * prices.length + 4L * offsets.length + nulls.length + text.length
+                + 4L * normalizedOffsets.length + normalized.length;
+    }
+
+    /**
+     * Returns the text column a searched field is stored in.
+     *
+     * @param field the searched field
+     * @return the column of the field
+     */
+    static int column(BookField field) {
+        switch (field) {
+            case NAME:
+                return NAME;
+            case AUTHOR:
+                return AUTHOR;
+            default:
+                return DESCRIPTION;
+        }
+    }
+
+    /**
+     * Collects rows, in ascending id order, into a new segment.
+     */
+    static final class Builder {
+        private int[] ids;
+        private int[] prices;
+        private byte[] nulls;
+        private final Arena text;
+        private final Arena normalized;
+        private int rows;
+
+        /**
+         * Constructs a new {@code Builder}.
+         *
+         * @param expectedRows the number of rows to make room for
+         */
+        Builder(int expectedRows) {
+            int capacity = Math.max(1, expectedRows);
+            ids = new int[capacity];
+            prices = new int[capacity];
+            nulls = new byte[capacity];
+            text = new Arena(capacity);
+            normalized = new Arena(capacity);
+        }
+
+        /**
+         * Adds the given book as the next row, normalizing its text.
+         *
+         * @param book the book, whose id must be greater than that of the last row
+         * @return this builder
+         */
+        Builder add(BookSummary book) {
+            startRow(book.id(), book.price());
+            String[] values = { book.name(), book.author(), book.category(), book.description() };
+            for (int c = 0; c < COLUMNS; c++) {
+                if (values[c] == null) {
+                    nulls[rows] |= (byte) (1 << c);
+                } else {
+                    text.append(values[c].getBytes(StandardCharsets.UTF_8));
+                    normalized.append(TextNormalizer.normalize(values[c]).getBytes(StandardCharsets.UTF_8));
+                }
+                text.endValue(rows * COLUMNS + c);
+                normalized.endValue(rows * COLUMNS + c);
+            }
+            rows++;
+            return this;
+        }
+
+        /**
+         * Copies the given row of the given segment as the next row.
+         *
+         * @param segment the segment to copy from
+         * @param row     the row to copy, whose id must be greater than that of the
+         *                last row
+         * @return this builder
+         */
+        Builder add(CatalogueSegment segment, int row) {
+            startRow(segment.ids[row], segment.prices[row]);
+            nulls[rows] = segment.nulls[row];
+            text.copyRow(segment.text, segment.offsets, row, rows);
+            normalized.copyRow(segment.normalized, segment.normalizedOffsets, row, rows);
+            rows++;
+            return this;
+        }
+
+        /**
+         * Returns the segment of the rows added so far.
+         *
+         * @return the new segment
+         */
+        CatalogueSegment build() {
+            return new CatalogueSegment(Arrays.copyOf(ids, rows), Arrays.copyOf(prices, rows),
+                    text.offsets(rows), Arrays.copyOf(nulls, rows), text.bytes(), normalized.offsets(rows),
+                    normalized.bytes());
+        }
+
+        private void startRow(int id, int price) {
+            if (rows > 0 && id <= ids[rows - 1]) {
+                throw new IllegalArgumentException("Rows must be added in ascending id order: " + id);
+            }
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                nulls = Arrays.copyOf(nulls, capacity);
+                text.grow(capacity);
+                normalized.grow(capacity);
+            }
+            ids[rows] = id;
+            prices[rows] = price;
+            nulls[rows] = 0;
+        }
+    }
+
+    /**
+     * A byte arena being filled by a {@link Builder}, with the offsets of its
+     * values.
+     */
+    private static final class Arena {
+        private int[] offsets;
+        private byte[] bytes;
+        private int length;
+
+        private Arena(int rows) {
+            offsets = new int[rows * COLUMNS + 1];
+            bytes = new byte[rows * 64];
+        }
+
+        /** Makes room for the offsets of the given number of rows. */
+        private void grow(int rows) {
+            offsets = Arrays.copyOf(offsets, rows * COLUMNS + 1);
+        }
+
+        /** Appends the given bytes to the current value. */
+        private void append(byte[] values) {
+            append(values, 0, values.length);
+        }
+
+        /** Ends the value of the given index at the current length. */
+        private void endValue(int index) {
+            offsets[index + 1] = length;
+        }
+
+        /**
+         * Appends the values of a row of another arena as the values of the given
+         * row of this one.
+         */
+        private void copyRow(byte[] source, int[] sourceOffsets, int sourceRow, int row) {
+            int from = sourceRow * COLUMNS;
+            append(source, sourceOffsets[from], sourceOffsets[from + COLUMNS]);
+            for (int c = 0; c < COLUMNS; c++) {
+                offsets[row * COLUMNS + c + 1] = offsets[row * COLUMNS + c]
+                        + sourceOffsets[from + c + 1] - sourceOffsets[from + c];
+            }
+        }
+
+        /** Returns the offsets of the given number of rows, trimmed. */
+        private int[] offsets(int rows) {
+            return Arrays.copyOf(offsets, rows * COLUMNS + 1);
+        }
+
+        /** Returns the bytes appended so far, trimmed. */
+        private byte[] bytes() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        private void append(byte[] values, int from, int to) {
+            int count = to - from;
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+            System.arraycopy(values, from, bytes, length, count);
+            length += count;
+        }
+    }
+}
@@ -0,0 +1,592 @@
+package com.anudip.lms.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.BookField;
+
+/**
+ * An immutable, read-optimized copy of the book catalogue, scanned by the
+ * {@link SearchStrategy#SCAN} search strategy.
+ *
+ * The books are held in a large base {@link CatalogueSegment} and a small delta
+ * segment with the books saved since the base was built. Base rows that were
+ * replaced by the delta or removed are marked in a bitset. Saving or removing a
+ * book therefore only rebuilds the delta and copies the bitset, and the delta is
+ * merged into a new base with {@link #compact()} once it has grown.
+ *
+ * A snapshot never changes, so any number of searches can scan one while a
+ * writer prepares its successor. A compacted snapshot is a single segment, which
+ * {@link CatalogueStore} writes to and maps back from disk.
+ *
+ * @since v1.1
+ * @see Catalogue
+ */
+public final class CatalogueSnapshot {
+
+    /** A snapshot without books. */
+    public static final CatalogueSnapshot EMPTY = new CatalogueSnapshot(CatalogueSegment.EMPTY, new long[0],
+            CatalogueSegment.EMPTY);
+
+    private final CatalogueSegment base;
+
+    /** The base rows that are replaced or removed, as a bit per row. */
+    private final long[] shadowed;
+
+    /** The books saved since the base was built, sorted by id. */
+    private final CatalogueSegment delta;
+
+    private final int size;
+
+    /** Visits a row of a segment. */
+    private interface RowVisitor {
+        void visit(CatalogueSegment segment, int row);
+    }
+
+    private CatalogueSnapshot(CatalogueSegment base, long[] shadowed, CatalogueSegment delta) {
+        this.base = base;
+        this.shadowed = shadowed;
+        this.delta = delta;
+        int hidden = 0;
+        for (long word : shadowed) {
+            hidden += Long.bitCount(word);
+        }
+        this.size = base.size() - hidden + delta.size();
+    }
+
+    /**
+     * Returns a snapshot of the given books.
+     *
+     * @param books the books, in any order
+     * @return the new snapshot
+     */
+    public static CatalogueSnapshot of(Collection<BookSummary> books) {
+        List<BookSummary> sorted = new ArrayList<>(books);
+        sorted.sort(Comparator.comparingInt(BookSummary::id));
+        CatalogueSegment.Builder builder = new CatalogueSegment.Builder(sorted.size());
+        for (BookSummary book : sorted) {
+            builder.add(book);
+        }
+        return of(builder.build());
+    }
+
+    /**
+     * Returns a snapshot of the books of the given segment.
+     *
+     * @param segment the segment
+     * @return the new snapshot
+     */
+    static CatalogueSnapshot of(CatalogueSegment segment) {
+        return new CatalogueSnapshot(segment, new long[0], CatalogueSegment.EMPTY);
+    }
+
+    /**
+     * Returns the number of books.
+     *
+     * @return the number of books in this snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of books saved since the base segment was built.
+     *
+     * @return the number of books in the delta segment
+     */
+    public int deltaSize() {
+        return delta.size();
+    }
+
+    /**
+     * Returns the number of bytes taken by the arrays of this snapshot.
+     *
+     * @return the approximate size of this snapshot in memory
+     */
+    public long bytes() {
+        return base.bytes() + 8L * shadowed.length + delta.bytes();
+    }
+
+    /**
+     * Checks whether the book with the given id is in this snapshot.
+     *
+     * @param id the id of the book
+     * @return true if the book is in this snapshot, false otherwise
+     */
+    public boolean contains(int id) {
+        return delta.row(id) >= 0 || visibleBaseRow(id) >= 0;
+    }
+
+    /**
+     * Returns the book with the given id.
+     *
+     * @param id the id of the book
+     * @return the summary of the book, or null if it is not in this snapshot
+     */
+    public BookSummary get(int id) {
+        int row = delta.row(id);
+        if (row >= 0) {
+            return delta.summary(row);
+        }
+        row = visibleBaseRow(id);
+        return row >= 0 ? base.summary(row) : null;
+    }
+
+    /**
+     * Returns a snapshot in which the given book replaces any book with the same
+     * id.
+     *
+     * @param book the saved book
+     * @return the new snapshot
+     */
+    public CatalogueSnapshot with(BookSummary book) {
+        CatalogueSegment.Builder builder = new CatalogueSegment.Builder(delta.size() + 1);
+        boolean added = false;
+        for (int row = 0; row < delta.size(); row++) {
+            int id = delta.ids[row];
+            if (!added && id >= book.id()) {
+                builder.add(book);
+                added = true;
+            }
+            if (id != book.id()) {
+                builder.add(delta, row);
+            }
+        }
+        if (!added) {
+            builder.add(book);
+        }
+        return new CatalogueSnapshot(base, shadow(book.id()), builder.build());
+    }
+
+    /**
+     * Returns a snapshot with a batch of changes applied: the given books replace
+     * any books with the same ids, and the books with the given ids are removed.
+     * Cheaper than applying the changes one by one when there are many.
+     *
+     * @param saved   the saved books
+     * @param removed the ids of the removed books
+     * @return the new, compacted snapshot
+     */
+    public CatalogueSnapshot withChanges(Collection<BookSummary> saved, Collection<Integer> removed) {
+        if (saved.isEmpty() && removed.isEmpty()) {
+            return this;
+        }
+        Map<Integer, BookSummary> changed = new TreeMap<>();
+        for (int row = 0; row < delta.size(); row++) {
+            changed.put(delta.ids[row], delta.summary(row));
+        }
+        for (BookSummary book : saved) {
+            changed.put(book.id(), book);
+        }
+        changed.keySet().removeAll(removed);
+
+        // hide the base rows of every changed book in one copy of the bitset
+        long[] hidden = Arrays.copyOf(shadowed, (base.size() + 63) >>> 6);
+        CatalogueSegment.Builder builder = new CatalogueSegment.Builder(changed.size());
+        for (BookSummary book : changed.values()) {
+            builder.add(book);
+            hide(hidden, book.id());
+        }
+        for (Integer id : removed) {
+            hide(hidden, id);
+        }
+        return new CatalogueSnapshot(base, hidden, builder.build()).compact();
+    }
+
+    /**
+     * Returns a snapshot without the book with the given id.
+     *
+     * @param id the id of the removed book
+     * @return the new snapshot, or this snapshot if it does not have the book
+     */
+    public CatalogueSnapshot without(int id) {
+        if (!contains(id)) {
+            return this;
+        }
+        CatalogueSegment.Builder builder = new CatalogueSegment.Builder(delta.size());
+        for (int row = 0; row < delta.size(); row++) {
+            if (delta.ids[row] != id) {
+                builder.add(delta, row);
+            }
+        }
+        return new CatalogueSnapshot(base, shadow(id), builder.build());
+    }
+
+    /**
+     * Returns a snapshot of the same books with the delta merged into a new base
+     * segment.
+     *
+     * @return the compacted snapshot
+     */
+    public CatalogueSnapshot compact() {
+        if (delta.size() == 0 && shadowed.length == 0) {
+            return this;
+        }
+        CatalogueSegment.Builder builder = new CatalogueSegment.Builder(size);
+        forEachRow(builder::add);
+        return of(builder.build());
+    }
+
+    /**
+     * Returns the single segment holding every book of this snapshot.
+     *
+     * @return the segment of the compacted snapshot
+     */
+    CatalogueSegment segment() {
+        return compact().base;
+    }
+
+    /**
+     * Performs the given action on every book, in ascending id order.
+     *
+     * @param action the action to perform on the summary of each book
+     */
+    public void forEach(Consumer<BookSummary> action) {
+        forEachRow((segment, row) -> action.accept(segment.summary(row)));
+    }
+
+    /**
+     * Returns the books whose name, author or description contains every token
+     * of the given keyword, scanning every book with the scalar matcher.
+     *
+     * @param keyword the keyword to search for
+     * @param weights the weight of each {@link BookField}, indexed by ordinal
+     * @return the matching books in ascending id order, or an empty list if no
+     *         book matches
+     * @see #search(String, double[], SubstringMatcher)
+     */
+    public List<BookMatch> search(String keyword, double[] weights) {
+        return search(keyword, weights, SubstringMatcher.SCALAR);
+    }
+
+    /**
+     * Returns the books whose name, author or description contains every token
+     * of the given keyword, scanning every book.
+     *
+     * A token matches anywhere in a field, also inside a word. The score of a
+     * match is the sum, over the tokens, of the weight of the heaviest field the
+     * token occurs in. The longest token is looked for in the text of all the
+     * books at once, and the other tokens only in the books that contain it.
+     *
+     * @param keyword the keyword to search for
+     * @param weights the weight of each {@link BookField}, indexed by ordinal
+     * @param matcher the matcher to find the tokens with
+     * @return the matching books in ascending id order, or an empty list if no
+     *         book matches
+     */
+    public List<BookMatch> search(String keyword, double[] weights, SubstringMatcher matcher) {
+        Query query = query(keyword, weights, matcher);
+        if (query == null) {
+            return Collections.emptyList();
+        }
+
+        List<BookMatch> fromBase = new ArrayList<>();
+        scan(base, 0, base.size(), query, fromBase);
+        List<BookMatch> fromDelta = new ArrayList<>();
+        scan(delta, 0, delta.size(), query, fromDelta);
+        return fromDelta.isEmpty() ? fromBase : merge(fromBase, fromDelta);
+    }
+
+    /**
+     * Returns the same matches as {@link #search(String, double[], SubstringMatcher)},
+     * scanning the base segment in chunks on the given pool.
+     *
+     * The base rows are split in halves until a range has at most the given
+     * number of rows. Each range collects its matches in id order, and the
+     * halves are joined left before right, so the result does not depend on how
+     * the chunks were scheduled. The small delta is scanned on the calling
+     * thread while the chunks run, and merged in at the end.
+     *
+     * @param keyword   the keyword to search for
+     * @param weights   the weight of each {@link BookField}, indexed by ordinal
+     * @param matcher   the matcher to find the tokens with
+     * @param pool      the pool to scan the chunks on
+     * @param chunkRows the largest number of rows scanned as one task
+     * @return the matching books in ascending id order, or an empty list if no
+     *         book matches
+     */
+    public List<BookMatch> search(String keyword, double[] weights, SubstringMatcher matcher, ForkJoinPool pool,
+            int chunkRows) {
+        Query query = query(keyword, weights, matcher);
+        if (query == null) {
+            return Collections.emptyList();
+        }
+
+        Chunk all = new Chunk(0, base.size(), query, Math.max(1, chunkRows));
+        pool.execute(all);
+        List<BookMatch> fromDelta = new ArrayList<>();
+        scan(delta, 0, delta.size(), query, fromDelta);
+        List<BookMatch> fromBase = all.join();
+        return fromDelta.isEmpty() ? fromBase : merge(fromBase, fromDelta);
+    }
+
+    /** Scans a range of base rows, splitting it while it is larger than a chunk. */
+    private final class Chunk extends RecursiveTask<List<BookMatch>> {
+        private final int from;
+        private final int to;
+        private final Query query;
+        private final int chunkRows;
+
+        private Chunk(int from, int to, Query query, int chunkRows) {
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.chunkRows = chunkRows;
+        }
+
+        @Override
+        protected List<BookMatch> compute() {
+            if (to - from <= chunkRows) {
+                List<BookMatch> matches = new ArrayList<>();
+                scan(base, from, to, query, matches);
+                return matches;
+            }
+
+            int middle = (from + to) >>> 1;
+            Chunk right = new Chunk(middle, to, query, chunkRows);
+            right.fork();
+            List<BookMatch> matches = new Chunk(from, middle, query, chunkRows).compute();
+            matches.addAll(right.join());
+            return matches;
+        }
+    }
+
+    /**
+     * Returns the words of the books that start with the given token: the token
+     * itself first if it is a word of some book, then the other words by the
+     * number of books that have them.
+     *
+     * The books containing the token are found by scanning every book, as a
+     * search does, and only the fields the token was found in are split into
+     * words.
+     *
+     * @param token   the token, normalized as by {@link BookIndex#tokenize(String)}
+     * @param limit   the maximum number of words
+     * @param matcher the matcher to find the token with
+     * @return the words, or an empty list if no book has a word starting with
+     *         the token
+     */
+    public List<String> complete(String token, int limit, SubstringMatcher matcher) {
+        if (token.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        Map<String, Integer> books = new HashMap<>();
+        countWords(base, token, bytes, matcher, books);
+        countWords(delta, token, bytes, matcher, books);
+
+        List<String> words = new ArrayList<>(books.keySet());
+        words.sort(Comparator.comparing((String word) -> !word.equals(token))
+                .thenComparing(Comparator.comparing(books::get).reversed())
+                .thenComparing(Comparator.naturalOrder()));
+        return words.subList(0, Math.min(limit, words.size()));
+    }
+
+    /**
+     * Counts, for each word starting with the given token, the visible rows of
+     * the given segment that have it.
+     */
+    private void countWords(CatalogueSegment segment, String token, byte[] bytes, SubstringMatcher matcher,
+            Map<String, Integer> books) {
+        if (segment.size() == 0) {
+            return;
+        }
+        segment.forEachRowContaining(0, segment.size(), bytes, matcher, (row, found) -> {
+            if (segment == base && isShadowed(row)) {
+                return;
+            }
+            BookSummary book = segment.summary(row);
+            Set<String> words = new HashSet<>();
+            for (BookField field : BookField.values()) {
+                if ((found & field.mask()) == 0) {
+                    continue;
+                }
+                for (String word : BookIndex.tokenize(field.of(book))) {
+                    if (word.startsWith(token)) {
+                        words.add(word);
+                    }
+                }
+            }
+            for (String word : words) {
+                books.merge(word, 1, Integer::sum);
+            }
+        });
+    }
+
+    /**
+     * The tokens of a keyword, longest first, with the field weights and the
+     * matcher to search for them with.
+     */
+    private record Query(byte[][] tokens, double[] weights, SubstringMatcher matcher) {
+
+        /** Returns the weight of the heaviest of the given fields. */
+        double score(int fields) {
+            double best = 0;
+            for (BookField field : BookField.values()) {
+                if ((fields & field.mask()) != 0) {
+                    best = Math.max(best, weights[field.ordinal()]);
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Adds the visible rows in the given range of the given segment that contain
+     * every token of the given query to the given matches, in row order.
+     */
+    private void scan(CatalogueSegment segment, int from, int to, Query query, List<BookMatch> matches) {
+        if (from >= to) {
+            return;
+        }
+        byte[][] tokens = query.tokens();
+        segment.forEachRowContaining(from, to, tokens[0], query.matcher(), (row, found) -> {
+            if (segment == base && isShadowed(row)) {
+                return;
+            }
+            int fields = found;
+            double score = query.score(found);
+            for (int t = 1; t < tokens.length; t++) {
+                int more = segment.fieldsContaining(row, tokens[t], query.matcher());
+                if (more == 0) {
+                    return;
+                }
+                fields |= more;
+                score += query.score(more);
+            }
+            matches.add(new BookMatch(segment.ids[row], fields, score));
+        });
+    }
+
+    /** Merges two lists of matches that are each in ascending id order. */
+    private static List<BookMatch> merge(List<BookMatch> a, List<BookMatch> b) {
+        List<BookMatch> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j == b.size() || (i < a.size() && a.get(i).bookId() < b.get(j).bookId())) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the query for the given keyword, or null if the keyword has no
+     * tokens.
+     */
+    private static Query query(String keyword, double[] weights, SubstringMatcher matcher) {
+        List<byte[]> tokens = new ArrayList<>();
+        for (String token : BookIndex.tokenize(keyword)) {
+            tokens.add(token.getBytes(StandardCharsets.UTF_8));
+        }
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        tokens.sort(Comparator.comparingInt((byte[] token) -> token.length).reversed());
+        return new Query(tokens.toArray(new byte[0][]), weights, matcher);
+    }
+
+    /**
+     * Returns the searched text of the given book, normalized by the
+     * {@link TextNormalizer}, with its fields separated so that no token can
+     * span two of them.
+     *
+     * @param book the book, may be null
+     * @return the searched text, or an empty string if the book is null
+     */
+    public static String searchedText(BookSummary book) {
+        if (book == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (BookField field : BookField.values()) {
+            String value = field.of(book);
+            if (value != null) {
+                text.append(TextNormalizer.normalize(value));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Visits the visible rows of the base and the rows of the delta together, in
+     * ascending id order.
+     */
+    private void forEachRow(RowVisitor visitor) {
+        int b = nextVisible(0);
+        int d = 0;
+        while (b < base.size() || d < delta.size()) {
+            if (d == delta.size() || (b < base.size() && base.ids[b] < delta.ids[d])) {
+                visitor.visit(base, b);
+                b = nextVisible(b + 1);
+            } else {
+                visitor.visit(delta, d++);
+            }
+        }
+    }
+
+    /**
+     * Returns the row of the given id in the base segment, unless it is
+     * shadowed.
+     */
+    private int visibleBaseRow(int id) {
+        int row = base.row(id);
+        return row >= 0 && !isShadowed(row) ? row : -1;
+    }
+
+    /** Returns the first base row from the given one on that is not shadowed. */
+    private int nextVisible(int row) {
+        while (row < base.size() && isShadowed(row)) {
+            row++;
+        }
+        return row;
+    }
+
+    private boolean isShadowed(int row) {
+        int word = row >>> 6;
+        return word < shadowed.length && (shadowed[word] & (1L << row)) != 0;
+    }
+
+    /**
+     * Sets the bit of the base row of the given id, if there is one, in the given
+     * bitset, which must cover every base row.
+     */
+    private void hide(long[] hidden, int id) {
+        int row = base.row(id);
+        if (row >= 0) {
+            hidden[row >>> 6] |= 1L << row;
+        }
+    }
+
+    /**
+     * Returns a copy of the shadow bitset that also hides the base row of the
+     * given id, if there is one.
+     */
+    private long[] shadow(int id) {
+        int row = base.row(id);
+        if (row < 0 || isShadowed(row)) {
+            return shadowed;
+        }
+        long[] copy = Arrays.copyOf(shadowed, Math.max(shadowed.length, (row >>> 6) + 1));
+        copy[row >>> 6] |= 1L << row;
+        return copy;
+    }
+}
@@ -0,0 +1,324 @@
+package com.anudip.lms.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.repository.BookRepository;
+import com.anudip.lms.repository.BookTombstoneRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Loads the catalogue that the search structures are built from at startup,
+ * from a segment file on disk rather than from the whole books table.
+ *
+ * The file holds a compacted {@link CatalogueSnapshot} in the columnar layout
+ * of {@link CatalogueSegment}, normalized text included, stamped with the time it was read from the
+ * database. At startup the file is memory-mapped and its columns are copied out
+ * in bulk. Then only the books written since that time, found through the index
+ * on {@code books.updated_at}, and the books removed since, found through
+ * their tombstones, are read and applied. The look-back overlaps the stamp by
+ * a safety margin, to cover clock skew between instances and transactions
+ * still open when the file was written. The margin is harmless because
+ * replaying a change is idempotent.
+ *
+ * The file is ignored, and the catalogue read in full, if it is missing, of
+ * another format version, damaged, older than the tombstones are kept, or
+ * holds a different number of books than the table after catching up. A fresh
+ * file is written whenever the loaded catalogue differs from the file.
+ *
+ * While the application runs, the file is checkpointed every
+ * {@code lms.search.segment.checkpoint-interval} and once more at shutdown: it
+ * is caught up the same way and written again with a fresh stamp, so the next
+ * startup only has the changes since the last checkpoint to read, and the file
+ * does not age past the tombstones. Neither the index nor the catalogue
+ * snapshot is needed for that, so it works for both strategies.
+ *
+ * @since v1.1
+ * @see Catalogue
+ * @see BookIndex
+ */
+@Component
+public class CatalogueStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueStore.class);
+
+    /** The first bytes of a segment file, "LMSC". */
+    private static final int MAGIC = 0x4C4D5343;
+
+    /** The version of the file layout; files of other versions are ignored. */
+    private static final int VERSION = 3;
+
+    /**
+     * The header: magic, version, stamp in epoch milliseconds, rows, arena
+     * length, normalized arena length and the CRC32C checksum of all the other
+     * bytes of the file, header fields included.
+     */
+    private static final int HEADER = 4 + 4 + 8 + 4 + 4 + 4 + 8;
+
+    /** The position of the checksum, after the header fields it covers. */
+    private static final int CHECKSUM = 28;
+
+    /** A catalogue read back from a segment file. */
+    private record Persisted(CatalogueSnapshot snapshot, Instant stamp) {
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookTombstoneRepository bookTombstoneRepository;
+
+    /** The segment file, or null if the catalogue is not persisted. */
+    private final Path path;
+
+    /** Whether a search structure was loaded, and so keeps the file in use. */
+    private volatile boolean loaded;
+
+    private final Duration overlap;
+
+    private final Duration maxAge;
+
+    /**
+     * Constructs a new {@code CatalogueStore}.
+     *
+     * @param path    the segment file, or an empty string to always read the
+     *                catalogue from the database
+     * @param overlap how far before the stamp of the file changes are looked for
+     * @param maxAge  how long tombstones are kept, and so the age beyond which a
+     *                file can no longer be caught up
+     */
+    public CatalogueStore(@Value("${lms.search.segment.path:}") String path,
+            @Value("${lms.search.segment.catch-up-overlap:5m}") Duration overlap,
+            @Value("${lms.search.segment.max-age:7d}") Duration maxAge) {
+        this.path = path.isBlank() ? null : Path.of(path);
+        this.overlap = overlap;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns the current catalogue: the segment file caught up with the
+     * database if it can be, otherwise every book read from the database.
+     *
+     * @return a compacted snapshot of every book
+     */
+    public CatalogueSnapshot load() {
+        loaded = true;
+        return catchUp(false);
+    }
+
+    /**
+     * Catches the segment file up with the database and writes it again with a
+     * fresh stamp, if a search structure was loaded from it.
+     */
+    @Scheduled(fixedDelayString = "${lms.search.segment.checkpoint-interval:PT1H}",
+            initialDelayString = "${lms.search.segment.checkpoint-interval:PT1H}")
+    @PreDestroy
+    public void checkpoint() {
+        if (path != null && loaded) {
+            catchUp(true);
+        }
+    }
+
+    /**
+     * Returns the segment file caught up with the database if it can be,
+     * otherwise every book read from the database, and writes it back if it
+     * changed.
+     *
+     * @param rewrite whether to write the file even if nothing changed since it
+     *                was written
+     * @return a compacted snapshot of every book
+     */
+    private synchronized CatalogueSnapshot catchUp(boolean rewrite) {
+        long start = System.nanoTime();
+        Instant stamp = Instant.now();
+
+        Persisted persisted = read();
+        if (persisted != null && persisted.stamp().isAfter(stamp.minus(maxAge))) {
+            Instant since = persisted.stamp().minus(overlap);
+            List<BookSummary> saved = bookRepository.findSummariesUpdatedAfter(since);
+            List<Integer> removed = bookTombstoneRepository.findBookIdsDeletedAfter(since);
+            CatalogueSnapshot snapshot = persisted.snapshot().withChanges(saved, removed);
+
+            long books = bookRepository.count();
+            if (books == snapshot.size()) {
+                log.info("Loaded {} books from {}, caught up {} saved and {} removed in {} ms", snapshot.size(),
+                        path, saved.size(), removed.size(), (System.nanoTime() - start) / 1_000_000);
+                if (rewrite || !saved.isEmpty() || !removed.isEmpty()) {
+                    write(snapshot, stamp);
+                }
+                return snapshot;
+            }
+            log.warn("Ignoring {}: it has {} books after catching up but the database has {}", path,
+                    snapshot.size(), books);
+        }
+
+        CatalogueSnapshot snapshot = CatalogueSnapshot.of(bookRepository.findAllSummaries());
+        log.info("Read {} books from the database in {} ms", snapshot.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        write(snapshot, stamp);
+        return snapshot;
+    }
+
+    /**
+     * Reads the segment file.
+     *
+     * @return the persisted catalogue, or null if there is no usable file
+     */
+    private Persisted read() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IOException("unexpected size " + size);
+            }
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            file.order(ByteOrder.LITTLE_ENDIAN);
+            if (file.getInt(0) != MAGIC || file.getInt(4) != VERSION) {
+                throw new IOException("not a version " + VERSION + " catalogue segment");
+            }
+            Instant stamp = Instant.ofEpochMilli(file.getLong(8));
+            int rows = file.getInt(16);
+            int textLength = file.getInt(20);
+            int normalizedLength = file.getInt(24);
+            if (rows < 0 || textLength < 0 || normalizedLength < 0
+                    || size != HEADER + bodyLength(rows, textLength, normalizedLength)) {
+                throw new IOException("header does not match the size " + size);
+            }
+            if (checksum(file, (int) size) != file.getLong(CHECKSUM)) {
+                throw new IOException("checksum mismatch");
+            }
+
+            // copy each column out of the mapping in one bulk transfer
+            int[] ids = new int[rows];
+            int[] prices = new int[rows];
+            int[] offsets = new int[rows * CatalogueSegment.COLUMNS + 1];
+            byte[] nulls = new byte[rows];
+            byte[] text = new byte[textLength];
+            int[] normalizedOffsets = new int[offsets.length];
+            byte[] normalized = new byte[normalizedLength];
+            int position = HEADER;
+            file.slice(position, 4 * rows).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(ids);
+            position += 4 * rows;
+            file.slice(position, 4 * rows).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(prices);
+            position += 4 * rows;
+            file.slice(position, 4 * offsets.length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(offsets);
+            position += 4 * offsets.length;
+            file.get(position, nulls);
+            position += rows;
+            file.get(position, text);
+            position += textLength;
+            file.slice(position, 4 * normalizedOffsets.length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                    .get(normalizedOffsets);
+            position += 4 * normalizedOffsets.length;
+            file.get(position, normalized);
+
+            return new Persisted(CatalogueSnapshot.of(
+                    CatalogueSegment.of(ids, prices, offsets, nulls, text, normalizedOffsets, normalized)), stamp);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring catalogue segment {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the given catalogue to the segment file, replacing it atomically,
+     * and prunes the tombstones that no file can need any more.
+     *
+     * @param snapshot the catalogue
+     * @param stamp    the time before which every change is in the catalogue
+     */
+    private void write(CatalogueSnapshot snapshot, Instant stamp) {
+        if (path == null) {
+            return;
+        }
+
+        CatalogueSegment segment = snapshot.segment();
+        int rows = segment.size();
+        long size = HEADER + bodyLength(rows, segment.text.length, segment.normalized.length);
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                    file.order(ByteOrder.LITTLE_ENDIAN);
+                    int position = HEADER;
+                    position = putInts(file, position, segment.ids);
+                    position = putInts(file, position, segment.prices);
+                    position = putInts(file, position, segment.offsets);
+                    file.put(position, segment.nulls);
+                    position += rows;
+                    file.put(position, segment.text);
+                    position += segment.text.length;
+                    position = putInts(file, position, segment.normalizedOffsets);
+                    file.put(position, segment.normalized);
+
+                    file.putInt(0, MAGIC)
+                            .putInt(4, VERSION)
+                            .putLong(8, stamp.toEpochMilli())
+                            .putInt(16, rows)
+                            .putInt(20, segment.text.length)
+                            .putInt(24, segment.normalized.length);
+                    file.putLong(CHECKSUM, checksum(file, (int) size));
+                    file.force();
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            log.info("Wrote {} books to {}", rows, path);
+        } catch (IOException e) {
+            log.warn("Could not write catalogue segment {}: {}", path, e.getMessage());
+            return;
+        }
+
+        bookTombstoneRepository.deleteDeletedBefore(stamp.minus(maxAge));
+    }
+
+    /**
+     * Returns the CRC32C checksum of the header fields before the checksum and
+     * of the columns after the header.
+     */
+    private static long checksum(ByteBuffer file, int size) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(file.slice(0, CHECKSUM));
+        checksum.update(file.slice(HEADER, size - HEADER));
+        return checksum.getValue();
+    }
+
+    private static int putInts(ByteBuffer file, int position, int[] values) {
+        file.slice(position, 4 * values.length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(values);
+        return position + 4 * values.length;
+    }
+
+    /** Returns the length of the columns of a segment after the header. */
+    private static long bodyLength(int rows, int textLength, int normalizedLength) {
+        long offsets = 4L * (rows * (long) CatalogueSegment.COLUMNS + 1);
+        return 4L * rows + 4L * rows + offsets + rows + textLength + offsets + normalizedLength;
+    }
+}
@@ -1,74 +1,257 @@
 package com.anudip.lms.service;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.dto.SearchHit;
+import com.anudip.lms.metrics.ResultSize;
 import com.anudip.lms.model.Book;
+import com.anudip.lms.model.BookField;
 import com.anudip.lms.repository.BookRepository;
+import com.anudip.lms.repository.BookRepository.ScoredId;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * The Search service class is responsible for searching books in the
  * repository.
  * 
+ * With the {@link SearchStrategy#INDEX} strategy, keyword queries are answered
+ * from the in-memory {@link BookIndex}, and only the summaries of the matching
+ * books are then read from the repository, in one query. The books matched by recent keywords are
+ * memoized in the {@link SearchResultCache}. Results are ranked by relevance,
+ * and only the requested page of the ranking is selected and loaded.
+ * 
+ * With the {@link SearchStrategy#SCAN} strategy, keywords are matched by
+ * scanning the {@link Catalogue} snapshot, and the matching books are read
+ * from the same snapshot, so a search does not touch the database.
+ * 
+ * With the {@link SearchStrategy#DATABASE} strategy, every query is pushed down
+ * to the database as a primary key lookup or a FULLTEXT match.
+ * 
+ * Each stage of a search is timed in the {@code lms.search.stage} timer: the
+ * result cache lookup, matching against the index, ranking, and loading the
+ * books. Every search is also timed as a whole in {@code lms.search}, tagged
+ * with the strategy, whether the result cache had the keyword, and the size
+ * range of the returned page.
+ * 
  * @since v1.0
  *
  */
 @Service
 public class Search {
 
+    /** Orders matches by descending score, then by ascending id. */
+    private static final Comparator<BookMatch> RANKING = Comparator.comparingDouble(BookMatch::score).reversed()
+            .thenComparingInt(BookMatch::bookId);
+
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookIndex bookIndex;
+
+    @Autowired
+    private Catalogue catalogue;
+
+    @Autowired
+    private SearchResultCache resultCache;
+
+    @Value("${lms.search.strategy:INDEX}")
+    private SearchStrategy strategy;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** The timers of the search stages, by stage. */
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+
+    /** A page of ranked matches, and whether they came from the result cache. */
+    private record Ranking(List<BookMatch> page, boolean cached) {
+    }
+
     /**
      * Searches for books in the repository that match the given keyword.
      * 
      * @param keyword the keyword to search for
-     * @return a list of books that match the keyword, or null if no such books are
-     *         found
+     * @return a list of books that match the keyword, most relevant first, or null
+     *         if no such books are found
      */
-    public List<Book> searchBooks(String keyword) {
+    public List<BookSummary> searchBooks(String keyword) {
+        return searchBooks(keyword, 0, Integer.MAX_VALUE);
+    }
 
-        // list to store the raw search results
-        List<Book> rawSearchResult = new ArrayList<>();
+    /**
+     * Searches for books in the repository that match the given keyword and
+     * returns one page of the results.
+     * 
+     * @param keyword the keyword to search for
+     * @param offset  the number of results to skip
+     * @param limit   the maximum number of results to return
+     * @return a list of books that match the keyword, most relevant first, or null
+     *         if no such books are found
+     */
+    public List<BookSummary> searchBooks(String keyword, int offset, int limit) {
 
-        // retrieve all books from the repository
-        List<Book> books = bookRepository.findAll();
+        List<SearchHit> hits = match(keyword, offset, limit);
 
-        // if the keyword is numeric, search for a book by id
-        if (isNumeric(keyword)) {
+        // if no books are found, return null
+        if (hits.isEmpty()) {
+            return null;
+        }
 
-            Book book = searchById(books, Integer.parseInt(keyword));
+        List<BookSummary> books = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            books.add(hit.book());
+        }
+        return books;
+    }
 
-            if (book != null) {
-                // add the book to the raw search result list if it is found
-                rawSearchResult.add(book);
-            }
+    /**
+     * Searches for books in the repository that match the given keyword and
+     * reports the fields each book matched in.
+     * 
+     * @param keyword the keyword to search for
+     * @return the matching books with their matched fields, most relevant first,
+     *         or an empty list if no such books are found
+     */
+    public List<SearchHit> match(String keyword) {
+        return match(keyword, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for books in the repository that match the given keyword, reports
+     * the fields each book matched in, and returns one page of the results.
+     * 
+     * @param keyword the keyword to search for
+     * @param offset  the number of results to skip
+     * @param limit   the maximum number of results to return
+     * @return the matching books with their matched fields, most relevant first,
+     *         or an empty list if no such books are found
+     */
+    public List<SearchHit> match(String keyword, int offset, int limit) {
+
+        long start = System.nanoTime();
+        List<SearchHit> hits;
+        String cache;
+        if (strategy == SearchStrategy.DATABASE) {
+            hits = matchInDatabase(keyword, offset, limit);
+            cache = "none";
         } else {
+            Ranking ranking = rankPage(keyword, offset, limit);
+            List<BookMatch> page = ranking.page();
+            hits = page.isEmpty() ? Collections.emptyList()
+                    : time("load", () -> strategy == SearchStrategy.SCAN ? catalogueHits(page) : loadHits(page));
+            cache = ranking.cached() ? "hit" : "miss";
+        }
 
-            // if the keyword is not numeric, search by name, author, and description
-            rawSearchResult.addAll(searchByName(books, keyword));
-            rawSearchResult.addAll(searchByAuthor(books, keyword));
-            rawSearchResult.addAll(searchByDescription(books, keyword));
+        Timer.builder("lms.search")
+                .description("Time spent answering keyword searches")
+                .tags("strategy", strategy.name(), "cache", cache, "results", ResultSize.bucket(hits.size()))
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return hits;
+    }
+
+    /**
+     * Ranks the books in the search index or catalogue against the given keyword
+     * and returns the ids of one page of them, without loading the books.
+     * 
+     * This only reads memory and the result cache, so it never blocks on the
+     * database. It is not meaningful with the {@link SearchStrategy#DATABASE}
+     * strategy.
+     * 
+     * @param keyword the keyword to search for
+     * @param offset  the number of results to skip
+     * @param limit   the maximum number of results to return
+     * @return the matching book ids with their matched fields and scores, most
+     *         relevant first
+     */
+    public List<BookMatch> rank(String keyword, int offset, int limit) {
+        return rankPage(keyword, offset, limit).page();
+    }
+
+    /**
+     * Returns how keyword searches are answered.
+     * 
+     * @return the configured search strategy
+     */
+    public SearchStrategy strategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns completions of the last word of the given text, most common first.
+     * 
+     * With the {@link SearchStrategy#INDEX} strategy, the completions are the
+     * terms of the {@link BookIndex}, and a misspelt word is completed to the
+     * terms close to it. With the {@link SearchStrategy#SCAN} strategy, they are
+     * the words of the books in the {@link Catalogue} snapshot that start with
+     * the last word, found by scanning it, and misspelt words are not completed.
+     * With the {@link SearchStrategy#DATABASE} strategy, neither is built, so
+     * there are no completions.
+     * 
+     * @param text  the text typed so far
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, or an empty list if there are none or search is
+     *         pushed down to the database
+     */
+    public List<String> suggest(String text, int limit) {
+        return strategy == SearchStrategy.SCAN ? catalogue.suggest(text, limit) : bookIndex.suggest(text, limit);
+    }
+
+    /**
+     * Updates the search index after the given book has been saved, and drops
+     * the cached results the change could affect.
+     * 
+     * @param book the saved book
+     */
+    public void onBookSaved(Book book) {
+        if (strategy == SearchStrategy.DATABASE) {
+            return;
+        }
+        if (strategy == SearchStrategy.SCAN) {
+            BookSummary after = BookSummary.of(book);
+            BookSummary before = catalogue.put(after);
+            resultCache.invalidate(book.getId(), CatalogueSnapshot.searchedText(before),
+                    CatalogueSnapshot.searchedText(after));
+            return;
         }
+        Set<String> before = bookIndex.add(book);
+        resultCache.invalidate(book.getId(), before, BookIndex.tokenize(book));
+    }
 
-        // if the raw search result list is not empty, deduplicate it if necessary and
-        // return it
-        if (rawSearchResult.size() > 0) {
-            if (rawSearchResult.size() > 1) {
-                return removeDuplicates(rawSearchResult);
-            } else {
-                return rawSearchResult;
-            }
-        } else {
-            // return null if no books are found
-            return null;
+    /**
+     * Updates the search index after the book with the given id has been removed,
+     * and drops the cached results the removal could affect.
+     * 
+     * @param id the id of the removed book
+     */
+    public void onBookRemoved(int id) {
+        if (strategy == SearchStrategy.DATABASE) {
+            return;
         }
+        if (strategy == SearchStrategy.SCAN) {
+            resultCache.invalidate(id, CatalogueSnapshot.searchedText(catalogue.remove(id)), "");
+            return;
+        }
+        Set<String> before = bookIndex.remove(id);
+        resultCache.invalidate(id, before, Collections.emptySet());
     }
 
     public static boolean isNumeric(String input) {
@@ -87,90 +270,233 @@ public class Search {
     }
 
     /**
-     * Searches for a book in the given list by its id.
+     * Ranks the books in the search index against the given keyword and returns
+     * one page of them.
+     * 
+     * @param keyword the keyword to search for
+     * @param offset  the number of results to skip
+     * @param limit   the maximum number of results to return
+     * @return the page of matches, and whether they came from the result cache
+     */
+    private Ranking rankPage(String keyword, int offset, int limit) {
+
+        // look up the matching books in the result cache first
+        List<BookMatch> cached = time("cache", () -> resultCache.get(keyword));
+        List<BookMatch> matches = cached;
+        if (matches == null) {
+            long generation = resultCache.generation();
+            matches = time("match", () -> findMatches(keyword));
+            resultCache.put(keyword, matches, generation);
+        }
+
+        List<BookMatch> all = matches;
+        return new Ranking(time("rank", () -> top(all, offset, limit)), cached != null);
+    }
+
+    /**
+     * Runs the given search stage and records its duration.
+     * 
+     * @param stage the name of the stage
+     * @param work  the work of the stage
+     * @return the result of the stage
+     */
+    private <T> T time(String stage, Supplier<T> work) {
+        Timer timer = stageTimers.computeIfAbsent(stage, s -> Timer.builder("lms.search.stage")
+                .description("Time spent in each stage of a keyword search")
+                .tag("stage", s)
+                .register(meterRegistry));
+        return timer.record(work);
+    }
+
+    /**
+     * Returns the books matching the given keyword from the index or catalogue.
+     * 
+     * @param keyword the keyword to search for
+     * @return the matching books in ascending id order
+     */
+    private List<BookMatch> findMatches(String keyword) {
+
+        // if the keyword is numeric, search for a book by id; no text field matched
+        if (isNumeric(keyword)) {
+            int id = Integer.parseInt(keyword);
+            boolean found = strategy == SearchStrategy.SCAN ? catalogue.snapshot().contains(id)
+                    : bookIndex.contains(id);
+            return found ? List.of(new BookMatch(id, 0, 0)) : Collections.emptyList();
+        }
+
+        // if the keyword is not numeric, search by name, author, and description
+        return strategy == SearchStrategy.SCAN ? catalogue.search(keyword) : bookIndex.search(keyword);
+    }
+
+    /**
+     * Returns the given page of the given matches in ranking order.
+     * 
+     * Rather than sorting every match, the best {@code offset + limit} matches
+     * are kept in a bounded heap, so the cost grows with the size of the page and
+     * only logarithmically with the number of matches.
      * 
-     * @param books the list of books to search in
-     * @param id    the id of the book to search for
-     * @return the book with the specified id, or null if no such book is found
+     * @param matches the matches to rank
+     * @param offset  the number of matches to skip
+     * @param limit   the maximum number of matches to return
+     * @return the requested page of matches, best first
      */
-    private Book searchById(List<Book> books, int id) {
+    static List<BookMatch> top(List<BookMatch> matches, int offset, int limit) {
+        int k = (int) Math.min((long) offset + limit, matches.size());
+        if (offset < 0 || offset >= k) {
+            return Collections.emptyList();
+        }
 
-        // use a stream to search for a book with the specified id
-        // if found, return it; otherwise, return null
-        return books.stream()
-                .filter(book -> book.getId() == id)
-                .findFirst()
-                .orElse(null);
+        // the heap is ordered worst first, so its head is the match to replace
+        PriorityQueue<BookMatch> heap = new PriorityQueue<>(k, RANKING.reversed());
+        for (BookMatch match : matches) {
+            if (heap.size() < k) {
+                heap.add(match);
+            } else if (RANKING.compare(match, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+
+        List<BookMatch> best = new ArrayList<>(heap);
+        best.sort(RANKING);
+        return best.subList(offset, k);
     }
 
     /**
-     * Searches for books in the given list whose name contains the given keyword.
+     * Returns the MySQL boolean-mode full-text query that requires every token of
+     * the given keyword.
      * 
-     * @param books   the list of books to search in
-     * @param keyword the keyword to search for in the name of the books
-     * @return a list of books whose name contains the keyword
+     * @param keyword the keyword to search for
+     * @return the full-text query, or null if the keyword has no tokens
      */
-    private List<Book> searchByName(List<Book> books, String keyword) {
+    public static String fullTextQuery(String keyword) {
 
-        // use a stream to search for books whose name contains the keyword
-        // collect the results into a list and return it
-        return books.stream()
-                .filter(book -> book.getName()
-                        .contains(keyword))
-                .collect(Collectors.toList());
+        // require every token; tokens are alphanumeric so they need no escaping
+        Set<String> tokens = BookIndex.tokenize(keyword);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String token : tokens) {
+            query.append('+').append(token).append(' ');
+        }
+        return query.toString().trim();
     }
 
     /**
-     * Searches for books in the given list whose author contains the given keyword.
+     * Searches for books matching the given keyword in the database.
      * 
-     * @param books   the list of books to search in
-     * @param keyword the keyword to search for in the author of the books
-     * @return a list of books whose author contains the keyword
+     * @param keyword the keyword to search for
+     * @param offset  the number of results to skip
+     * @param limit   the maximum number of results to return
+     * @return the matching books with their matched fields, most relevant first
      */
-    private List<Book> searchByAuthor(List<Book> books, String keyword) {
+    private List<SearchHit> matchInDatabase(String keyword, int offset, int limit) {
+
+        // if the keyword is numeric, look the book up by its primary key
+        if (isNumeric(keyword)) {
+            if (offset > 0 || limit <= 0) {
+                return Collections.emptyList();
+            }
+            return bookRepository.findById(Integer.parseInt(keyword))
+                    .map(book -> List.of(new SearchHit(BookSummary.of(book), Set.<BookField>of(), 0)))
+                    .orElse(Collections.emptyList());
+        }
+
+        Set<String> tokens = BookIndex.tokenize(keyword);
+        String query = fullTextQuery(keyword);
+        if (query == null) {
+            return Collections.emptyList();
+        }
+
+        // let the database rank and page the matches, then load only that page
+        List<ScoredId> page = bookRepository.searchFullText(query, offset, limit);
+        List<Integer> ids = new ArrayList<>(page.size());
+        for (ScoredId scored : page) {
+            ids.add(scored.getId());
+        }
+        Map<Integer, BookSummary> booksById = findAllById(ids);
 
-        // use a stream to search for books whose author contains the keyword
-        // collect the results into a list and return it
-        return books.stream()
-                .filter(book -> book.getAuthor()
-                        .contains(keyword))
-                .collect(Collectors.toList());
+        // work out the matched fields on the few rows the database returned
+        List<SearchHit> hits = new ArrayList<>(page.size());
+        for (ScoredId scored : page) {
+            BookSummary book = booksById.get(scored.getId());
+            if (book == null) {
+                continue;
+            }
+            int fields = 0;
+            for (BookField field : BookField.values()) {
+                if (!Collections.disjoint(BookIndex.tokenize(field.of(book)), tokens)) {
+                    fields |= field.mask();
+                }
+            }
+            hits.add(new SearchHit(book, BookField.fromMask(fields), scored.getScore()));
+        }
+        return hits;
     }
 
     /**
-     * Searches for books in the given list whose description contains the given
-     * keyword.
+     * Reads the summaries of the matched books from the repository, preserving
+     * the order of the matches.
      * 
-     * @param books   the list of books to search in
-     * @param keyword the keyword to search for in the description of the books
-     * @return a list of books whose description contains the keyword
+     * @param matches the matched books
+     * @return the loaded books with their matched fields, in the order of the
+     *         matches
      */
-    private List<Book> searchByDescription(List<Book> books, String keyword) {
+    private List<SearchHit> loadHits(List<BookMatch> matches) {
+
+        List<Integer> ids = new ArrayList<>(matches.size());
+        for (BookMatch match : matches) {
+            ids.add(match.bookId());
+        }
+        Map<Integer, BookSummary> booksById = findAllById(ids);
 
-        // use a stream to search for books whose description contains the keyword
-        // collect the results into a list and return it
-        return books.stream()
-                .filter(book -> book.getDescription()
-                        .contains(keyword))
-                .collect(Collectors.toList());
+        // books removed since they were matched are skipped
+        List<SearchHit> hits = new ArrayList<>(matches.size());
+        for (BookMatch match : matches) {
+            BookSummary book = booksById.get(match.bookId());
+            if (book != null) {
+                hits.add(new SearchHit(book, BookField.fromMask(match.fields()), match.score()));
+            }
+        }
+        return hits;
     }
 
     /**
-     * Removes duplicate elements from the given list.
+     * Reads the matched books from the current catalogue snapshot, preserving the
+     * order of the matches.
      * 
-     * @param list the list to deduplicate
-     * @return a new list with no duplicate elements
+     * @param matches the matched books
+     * @return the books with their matched fields, in the order of the matches
      */
-    private List<Book> removeDuplicates(List<Book> list) {
+    private List<SearchHit> catalogueHits(List<BookMatch> matches) {
 
-        // create a set to store the unique elements
-        Set<Book> set = new LinkedHashSet<>();
+        // books removed since they were matched are skipped
+        CatalogueSnapshot snapshot = catalogue.snapshot();
+        List<SearchHit> hits = new ArrayList<>(matches.size());
+        for (BookMatch match : matches) {
+            BookSummary book = snapshot.get(match.bookId());
+            if (book != null) {
+                hits.add(new SearchHit(book, BookField.fromMask(match.fields()), match.score()));
+            }
+        }
+        return hits;
+    }
 
-        // add all the elements from the list to the set
-        set.addAll(list);
+    /**
+     * Reads the summaries of the books with the given ids from the repository.
+     * 
+     * @param ids the ids of the books to read
+     * @return the summaries of the books by id
+     */
+    private Map<Integer, BookSummary> findAllById(List<Integer> ids) {
 
-        // create a new list from the set and return it
-        return new ArrayList<>(set);
+        // the repository does not guarantee any order, so index the books by id
+        Map<Integer, BookSummary> booksById = new HashMap<>();
+        for (BookSummary book : bookRepository.findSummariesByIdIn(ids)) {
+            booksById.put(book.id(), book);
+        }
+        return booksById;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,325 @@
+package com.anudip.lms.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * A bounded cache of keyword search results.
+ *
+ * Results are stored as immutable lists of book matches under the normalized form
+ * of the keyword, so "Harry  potter" and "harry POTTER" share one entry. When a
+ * book changes, only the entries whose result could have changed are dropped:
+ * a keyword query is invalidated if each of its tokens matches a token of the
+ * book, exactly or as a prefix or typo as {@link BookIndex#matches} allows,
+ * before or after the change, and an id query is invalidated if it names the
+ * book. With the {@link SearchStrategy#SCAN} strategy, where tokens match
+ * anywhere in a field, a keyword query is invalidated if each of its tokens
+ * occurs in the text of the book before or after the change.
+ * Scores are kept as computed when the result was cached; changes to other
+ * books shift collection statistics only slightly and do not drop entries.
+ *
+ * Invalidation holds the lock of the cache, so it is kept cheap: the tokens of
+ * the changed book are grouped by their first character, a query token is only
+ * compared with the group of its own first character, since prefixes and typos
+ * keep it, and the outcome for a token is worked out once per change however
+ * many entries share it.
+ *
+ * Once the cache is full, the least recently used or the least frequently used
+ * entry is evicted, depending on the configured {@link EvictionPolicy}.
+ *
+ * @since v1.1
+ * @see Search
+ */
+@Component
+public class SearchResultCache {
+
+    /**
+     * The policies for choosing which entry to evict from a full cache.
+     */
+    public enum EvictionPolicy {
+        /** Evict the entry that was read or written least recently. */
+        LRU,
+        /** Evict the entry that was read least often, oldest first on ties. */
+        LFU
+    }
+
+    /** A cached result together with what it depends on. */
+    private static final class Entry {
+        private final List<String> tokens;
+        private final Integer bookId;
+        private final List<BookMatch> matches;
+        private int frequency = 1;
+
+        private Entry(List<String> tokens, Integer bookId, List<BookMatch> matches) {
+            this.tokens = tokens;
+            this.bookId = bookId;
+            this.matches = matches;
+        }
+    }
+
+    private final int maxEntries;
+
+    private final EvictionPolicy policy;
+
+    /** The cached entries; in access order when the policy is LRU. */
+    private final Map<String, Entry> entries;
+
+    /** The keys of the cached entries grouped by read frequency, used for LFU. */
+    private final TreeMap<Integer, LinkedHashSet<String>> frequencies = new TreeMap<>();
+
+    /** Incremented on every invalidation to reject results computed before it. */
+    private long generation;
+
+    /**
+     * Constructs a new {@code SearchResultCache}.
+     *
+     * @param maxEntries the maximum number of cached keywords, or 0 to disable
+     *                   caching
+     * @param policy     the policy for choosing which entry to evict
+     */
+    public SearchResultCache(@Value("${lms.search.cache.max-entries:1000}") int maxEntries,
+            @Value("${lms.search.cache.policy:LRU}") EvictionPolicy policy) {
+        this.maxEntries = maxEntries;
+        this.policy = policy;
+        this.entries = policy == EvictionPolicy.LRU ? new LinkedHashMap<>(16, 0.75f, true) : new HashMap<>();
+    }
+
+    /**
+     * Returns the cached result for the given keyword.
+     *
+     * @param keyword the keyword as entered by the client
+     * @return the matching books, or null if the keyword is not cached
+     */
+    public synchronized List<BookMatch> get(String keyword) {
+        String key = normalize(keyword);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (policy == EvictionPolicy.LFU) {
+            removeFrequency(key, entry.frequency);
+            entry.frequency++;
+            frequencies.computeIfAbsent(entry.frequency, f -> new LinkedHashSet<>()).add(key);
+        }
+        return entry.matches;
+    }
+
+    /**
+     * Returns the current generation of the cache. A result computed after this
+     * call must be stored with {@link #put(String, List, long)} passing the
+     * returned value, so that it is discarded if a book changed in the meantime.
+     *
+     * @return the current generation
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores the result for the given keyword, unless the cache has been
+     * invalidated since the given generation.
+     *
+     * @param keyword    the keyword as entered by the client
+     * @param matches    the matching books
+     * @param generation the generation read before the result was computed
+     */
+    public synchronized void put(String keyword, List<BookMatch> matches, long generation) {
+        if (maxEntries <= 0 || generation != this.generation) {
+            return;
+        }
+
+        String key = normalize(keyword);
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            removeFrequency(key, previous.frequency);
+        } else if (entries.size() >= maxEntries) {
+            evict();
+        }
+
+        Integer bookId = Search.isNumeric(keyword) ? Integer.valueOf(Integer.parseInt(keyword)) : null;
+        List<String> tokens = bookId == null ? new ArrayList<>(BookIndex.tokenize(keyword)) : List.of();
+        entries.put(key, new Entry(tokens, bookId, List.copyOf(matches)));
+        if (policy == EvictionPolicy.LFU) {
+            frequencies.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * Drops every cached result that could have been changed by a change to the
+     * given book.
+     *
+     * @param bookId the id of the changed book
+     * @param before the tokens the book was indexed under before the change
+     * @param after  the tokens the book is indexed under after the change
+     */
+    public synchronized void invalidate(int bookId, Set<String> before, Set<String> after) {
+        generation++;
+        BookTerms beforeTerms = new BookTerms(before);
+        BookTerms afterTerms = new BookTerms(after);
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> cached = iterator.next();
+            Entry entry = cached.getValue();
+            boolean affected = entry.bookId != null
+                    ? entry.bookId == bookId
+                    : beforeTerms.couldMatch(entry.tokens) || afterTerms.couldMatch(entry.tokens);
+            if (affected) {
+                iterator.remove();
+                removeFrequency(cached.getKey(), entry.frequency);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached result that could have been changed by a change to the
+     * given book, when keyword tokens match anywhere in a field.
+     *
+     * @param bookId the id of the changed book
+     * @param before the normalized searched text of the book before the change
+     * @param after  the normalized searched text of the book after the change
+     * @see CatalogueSnapshot#searchedText
+     */
+    public synchronized void invalidate(int bookId, String before, String after) {
+        generation++;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> cached = iterator.next();
+            Entry entry = cached.getValue();
+            boolean affected = entry.bookId != null
+                    ? entry.bookId == bookId
+                    : containsAll(before, entry.tokens) || containsAll(after, entry.tokens);
+            if (affected) {
+                iterator.remove();
+                removeFrequency(cached.getKey(), entry.frequency);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        frequencies.clear();
+    }
+
+    /**
+     * Returns the normalized form of the given keyword: the id for a numeric
+     * keyword, otherwise its tokens. Token order is kept because the last token
+     * also matches as a prefix.
+     *
+     * @param keyword the keyword as entered by the client
+     * @return the normalized keyword
+     */
+    static String normalize(String keyword) {
+        if (Search.isNumeric(keyword)) {
+            return "#" + Integer.parseInt(keyword);
+        }
+        return String.join(" ", BookIndex.tokenize(keyword));
+    }
+
+    /**
+     * The tokens of a changed book, grouped by first character, with the query
+     * tokens already checked against them.
+     */
+    private static final class BookTerms {
+        private final Set<String> tokens;
+        private final Map<Character, List<String>> byFirst = new HashMap<>();
+
+        /** Whether each checked query token matches; "*" marks a prefix token. */
+        private final Map<String, Boolean> checked = new HashMap<>();
+
+        private BookTerms(Set<String> tokens) {
+            this.tokens = tokens;
+            for (String token : tokens) {
+                byFirst.computeIfAbsent(token.charAt(0), c -> new ArrayList<>()).add(token);
+            }
+        }
+
+        /**
+         * Checks whether the book could match a query with the given tokens.
+         */
+        private boolean couldMatch(List<String> queryTokens) {
+            if (queryTokens.isEmpty() || tokens.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < queryTokens.size(); i++) {
+                if (!matches(queryTokens.get(i), i == queryTokens.size() - 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(String token, boolean prefix) {
+            if (tokens.contains(token)) {
+                return true;
+            }
+            return checked.computeIfAbsent(prefix ? token + "*" : token, key -> {
+                for (String term : byFirst.getOrDefault(token.charAt(0), List.of())) {
+                    if (BookIndex.matches(token, term, prefix)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Checks whether the given text contains every one of the given query
+     * tokens.
+     */
+    private static boolean containsAll(String text, List<String> queryTokens) {
+        if (queryTokens.isEmpty() || text.isEmpty()) {
+            return false;
+        }
+        for (String token : queryTokens) {
+            if (!text.contains(token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void evict() {
+        String key;
+        if (policy == EvictionPolicy.LFU) {
+            Map.Entry<Integer, LinkedHashSet<String>> least = frequencies.firstEntry();
+            key = least.getValue().iterator().next();
+            removeFrequency(key, least.getKey());
+        } else {
+            // the first key of an access-ordered map is the least recently used
+            key = entries.keySet().iterator().next();
+        }
+        entries.remove(key);
+    }
+
+    private void removeFrequency(String key, int frequency) {
+        if (policy != EvictionPolicy.LFU) {
+            return;
+        }
+
+        LinkedHashSet<String> keys = frequencies.get(frequency);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                frequencies.remove(frequency);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.anudip.lms.service;
+
+/**
+ * The ways the {@link Search} service can answer keyword queries, selected with
+ * the {@code lms.search.strategy} property.
+ * 
+ * @since v1.1
+ * @see Search
+ */
+public enum SearchStrategy {
+
+    /**
+     * Match keywords against the in-memory {@link BookIndex} and load only the
+     * matching books from the database.
+     */
+    INDEX,
+
+    /**
+     * Scan a compact, columnar {@link CatalogueSnapshot} of every book for the
+     * keyword, matching it anywhere in a field, and answer from the snapshot
+     * without reading the database.
+     */
+    SCAN,
+
+    /**
+     * Push keyword matching down to the database, using the FULLTEXT index on
+     * the books table and primary key lookups for numeric keywords.
+     */
+    DATABASE
+}
@@ -0,0 +1,126 @@
+package com.anudip.lms.service;
+
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds a token in a range of UTF-8 text; the inner loop of a
+ * {@link SearchStrategy#SCAN} search. Both the token and the text are
+ * normalized by the {@link TextNormalizer} beforehand, so their bytes are
+ * compared exactly.
+ *
+ * {@link #SCALAR} compares the text a byte at a time. The matcher returned for
+ * {@code vector} compares a whole vector register of candidate positions at a
+ * time with the incubating Vector API, and needs the JVM to be started with
+ * {@code --add-modules jdk.incubator.vector}. Without it, or on hardware
+ * without SIMD registers of at least 128 bits, the scalar matcher is used
+ * instead.
+ *
+ * @since v1.1
+ * @see CatalogueSegment
+ */
+public interface SubstringMatcher {
+
+    /** Compares a byte at a time. */
+    SubstringMatcher SCALAR = new SubstringMatcher() {
+        @Override
+        public int indexOf(byte[] text, int from, int to, byte[] token) {
+            return scalarIndexOf(text, from, to, token);
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    };
+
+    /**
+     * Returns the first position in the given range of the given text at which
+     * the given token starts.
+     *
+     * @param text  the UTF-8 text
+     * @param from  the start of the range, inclusive
+     * @param to    the end of the range, exclusive; the token must end before it
+     * @param token the UTF-8 bytes of the token
+     * @return the position of the token, or -1 if the range does not contain it
+     */
+    int indexOf(byte[] text, int from, int to, byte[] token);
+
+    /**
+     * Returns the matcher of the given name.
+     *
+     * @param name {@code scalar}, {@code vector}, or {@code auto} for the vector
+     *             matcher if it is available and the scalar one otherwise
+     * @return the matcher
+     * @throws IllegalArgumentException if the name is not one of those
+     */
+    static SubstringMatcher named(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "scalar":
+                return SCALAR;
+            case "auto":
+                return vector(false);
+            case "vector":
+                return vector(true);
+            default:
+                throw new IllegalArgumentException("Unknown substring matcher: " + name);
+        }
+    }
+
+    /**
+     * Returns the vector matcher, or the scalar matcher if the Vector API is not
+     * available. The vector matcher is loaded reflectively, so that this
+     * interface links on a JVM without the incubator module.
+     */
+    private static SubstringMatcher vector(boolean required) {
+        Logger log = LoggerFactory.getLogger(SubstringMatcher.class);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            if (required) {
+                log.warn("The vector substring matcher needs --add-modules jdk.incubator.vector, using the scalar one");
+            }
+            return SCALAR;
+        }
+        try {
+            Class<?> type = Class.forName(SubstringMatcher.class.getPackageName() + ".VectorSubstringMatcher");
+            if (required || (boolean) type.getDeclaredMethod("isAccelerated").invoke(null)) {
+                return (SubstringMatcher) type.getDeclaredConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Could not load the vector substring matcher, using the scalar one: {}", e.toString());
+        }
+        return SCALAR;
+    }
+
+    /**
+     * Finds the token a byte at a time, checking the first byte of each
+     * position before the rest.
+     *
+     * @param text  the UTF-8 text
+     * @param from  the start of the range, inclusive
+     * @param to    the end of the range, exclusive
+     * @param token the UTF-8 bytes of the token
+     * @return the position of the token, or -1 if the range does not contain it
+     */
+    static int scalarIndexOf(byte[] text, int from, int to, byte[] token) {
+        int last = to - token.length;
+        if (token.length == 0) {
+            return from <= to ? from : -1;
+        }
+        byte first = token[0];
+        for (int i = from; i <= last; i++) {
+            if (text[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < token.length && text[i + j] == token[j]) {
+                j++;
+            }
+            if (j == token.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
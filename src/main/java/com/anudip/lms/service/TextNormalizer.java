@@ -0,0 +1,80 @@
+package com.anudip.lms.service;
+
+import java.text.Normalizer;
+
+/**
+ * Normalizes text for keyword matching, so that "harry", "HARRY" and "Hárry"
+ * all find "Harry Potter".
+ *
+ * Text is decomposed to Unicode compatibility form (NFKD), which also splits
+ * ligatures and full-width forms into plain letters. Combining marks such as
+ * accents are then dropped, letters are case-folded and runs of whitespace
+ * collapse to a single space. Both the books and the keywords are normalized
+ * this way, the books once when they are written to a search structure, so a
+ * search compares the normalized bytes as they are without allocating.
+ *
+ * @since v1.1
+ * @see BookIndex#tokenize(String)
+ * @see CatalogueSegment
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Returns the normalized form of the given text.
+     *
+     * @param text the text, may be null
+     * @return the case-folded text without accents, with single spaces between
+     *         words and none around them, or null if the text is null
+     */
+    public static String normalize(String text) {
+        if (text == null || isNormalized(text)) {
+            return text;
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length();) {
+            int c = decomposed.codePointAt(i);
+            i += Character.charCount(c);
+            if (isMark(c)) {
+                continue;
+            }
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+            normalized.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c)));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Checks whether the given text is already normalized, as most ASCII text
+     * in lower case is, so that it can be returned without a copy.
+     */
+    private static boolean isNormalized(String text) {
+        char previous = ' ';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z') || (c <= ' ' && (c != ' ' || previous == ' '))) {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != ' ' || text.isEmpty();
+    }
+
+    private static boolean isMark(int c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+}
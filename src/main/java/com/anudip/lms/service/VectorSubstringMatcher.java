@@ -0,0 +1,81 @@
+package com.anudip.lms.service;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link SubstringMatcher} that filters candidate positions a vector register
+ * at a time with the incubating Vector API.
+ *
+ * For each block of positions, one vector holds the bytes at those positions
+ * and another the bytes a token length further on. Comparing them with the
+ * first and the last byte of the token leaves a mask of the positions where
+ * both fit, which in ordinary text is rarely more than one in the block, and
+ * only those are compared byte by byte. The positions left over at the end of
+ * the range are checked by the scalar loop.
+ *
+ * Only loaded when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}.
+ *
+ * @since v1.1
+ * @see SubstringMatcher#named(String)
+ */
+final class VectorSubstringMatcher implements SubstringMatcher {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    /**
+     * Checks whether the platform has vector registers wide enough to be worth
+     * comparing 16 or more bytes at a time. Vectors of more than 64 bytes are
+     * not used either, as their masks do not fit the {@code long} the candidate
+     * positions are read from.
+     *
+     * @return true if the preferred vectors hold 16 to 64 bytes
+     */
+    static boolean isAccelerated() {
+        return SPECIES.length() >= 16 && SPECIES.length() <= 64;
+    }
+
+    @Override
+    public int indexOf(byte[] text, int from, int to, byte[] token) {
+        int length = token.length;
+        if (length < 2) {
+            return SubstringMatcher.scalarIndexOf(text, from, to, token);
+        }
+
+        byte first = token[0];
+        byte last = token[length - 1];
+        int lanes = SPECIES.length();
+        // the last position at which a whole block of candidates fits in the range
+        int bound = to - length - lanes + 1;
+        int i = from;
+        for (; i <= bound; i += lanes) {
+            VectorMask<Byte> candidates = ByteVector.fromArray(SPECIES, text, i)
+                    .eq(first)
+                    .and(ByteVector.fromArray(SPECIES, text, i + length - 1).eq(last));
+            for (long bits = candidates.toLong(); bits != 0; bits &= bits - 1) {
+                int at = i + Long.numberOfTrailingZeros(bits);
+                if (matchesInside(text, at, token)) {
+                    return at;
+                }
+            }
+        }
+        return SubstringMatcher.scalarIndexOf(text, i, to, token);
+    }
+
+    @Override
+    public String toString() {
+        return "vector";
+    }
+
+    /** Compares the bytes between the first and the last of the token. */
+    private static boolean matchesInside(byte[] text, int at, byte[] token) {
+        for (int j = 1; j < token.length - 1; j++) {
+            if (text[at + j] != token[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+-- Migrates customer ids to BINARY(16) storage (MySQL 8).
+--
+-- Customer ids are now time-ordered (version 7) UUIDs stored as BINARY(16) in
+-- customers.id and customer_book.customer_id. Databases created by this
+-- version already have that layout and need nothing from this script.
+--
+-- Databases whose customer ids were stored as text, for example CHAR(36) or
+-- VARCHAR(255), must be converted before the application is started. Run this
+-- script once, with the application stopped, after taking a backup.
+--
+-- Existing customers keep their ids, so links and references held by clients
+-- stay valid. Their random (version 4) ids stay scattered across the primary
+-- key, but every customer created from now on gets an id greater than all
+-- ids generated before it, so inserts go to one advancing position in the
+-- index instead of random pages.
+
+-- Build the new tables next to the old ones.
+CREATE TABLE customers_new (
+    id BINARY(16) NOT NULL,
+    address VARCHAR(255),
+    name VARCHAR(255),
+    phone BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE customer_book_new (
+    customer_id BINARY(16) NOT NULL,
+    book_id INTEGER NOT NULL,
+    PRIMARY KEY (customer_id, book_id),
+    FOREIGN KEY (customer_id) REFERENCES customers_new (id),
+    FOREIGN KEY (book_id) REFERENCES books (id)
+);
+
+-- Copy the rows, converting the textual UUIDs to their 16 bytes.
+INSERT INTO customers_new (id, address, name, phone)
+SELECT UNHEX(REPLACE(id, '-', '')), address, name, phone
+FROM customers;
+
+INSERT INTO customer_book_new (customer_id, book_id)
+SELECT UNHEX(REPLACE(customer_id, '-', '')), book_id
+FROM customer_book;
+
+-- Swap the tables in one step, keeping the old ones for verification.
+RENAME TABLE customers TO customers_old,
+             customers_new TO customers,
+             customer_book TO customer_book_old,
+             customer_book_new TO customer_book;
+
+-- Once the application has been checked against the new tables:
+-- DROP TABLE customer_book_old;
+-- DROP TABLE customers_old;
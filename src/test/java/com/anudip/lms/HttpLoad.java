@@ -0,0 +1,107 @@
+package com.anudip.lms;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.anudip.lms.authentication.AdminDetails;
+
+/**
+ * Helpers for the benchmarks and load tests that call a running application
+ * over HTTP.
+ */
+final class HttpLoad {
+
+	private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\" type=\"hidden\" value=\"([^\"]+)\"");
+
+	private HttpLoad() {
+	}
+
+	/**
+	 * Logs in through the login form, so that the calls made with the given
+	 * client share one session instead of having their password checked every
+	 * time.
+	 *
+	 * @return the CSRF token of the new session, to be sent in the
+	 *         {@code X-CSRF-TOKEN} header of requests that change data
+	 */
+	static String logIn(HttpClient http, String base) throws Exception {
+		Map.Entry<String, String> admin = AdminDetails.getAdmins().entrySet().iterator().next();
+		String form = "username=" + URLEncoder.encode(admin.getKey(), StandardCharsets.UTF_8)
+				+ "&password=" + URLEncoder.encode(admin.getValue(), StandardCharsets.UTF_8)
+				+ "&_csrf=" + URLEncoder.encode(csrfToken(http, base), StandardCharsets.UTF_8);
+		HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form))
+				.build(), HttpResponse.BodyHandlers.discarding());
+		if (response.headers().firstValue("Location").orElse("").contains("error")) {
+			throw new IllegalStateException("Login failed");
+		}
+		// logging in replaces the token of the anonymous session
+		return csrfToken(http, base);
+	}
+
+	private static String csrfToken(HttpClient http, String base) throws Exception {
+		String page = http.send(HttpRequest.newBuilder(URI.create(base + "/login")).build(),
+				HttpResponse.BodyHandlers.ofString()).body();
+		Matcher csrf = CSRF_TOKEN.matcher(page);
+		if (!csrf.find()) {
+			throw new IllegalStateException("No CSRF token on the login page");
+		}
+		return csrf.group(1);
+	}
+
+	/** The latencies of successful calls, in nanoseconds, and the number of failed calls. */
+	static final class Samples {
+		private long[] latencies = new long[1024];
+		private int count;
+		private long errors;
+
+		void add(long latency) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latency;
+		}
+
+		void addError() {
+			errors++;
+		}
+
+		void addAll(Samples other) {
+			if (count + other.count > latencies.length) {
+				latencies = Arrays.copyOf(latencies, Math.max(count + other.count, count * 2));
+			}
+			System.arraycopy(other.latencies, 0, latencies, count, other.count);
+			count += other.count;
+			errors += other.errors;
+		}
+
+		int count() {
+			return count;
+		}
+
+		long errors() {
+			return errors;
+		}
+
+		/** Returns the latencies, sorted ascending. */
+		long[] sorted() {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+
+	/** Returns the given percentile (0 to 1) of the given sorted latencies. */
+	static long percentile(long[] sorted, double p) {
+		return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, p * sorted.length)];
+	}
+}
@@ -0,0 +1,424 @@
+package com.anudip.lms;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.anudip.lms.dao.BookDao;
+import com.anudip.lms.dao.CustomerDao;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.model.Customer;
+
+/**
+ * Drives a mixed workload across all routes of {@code MainController} and
+ * reports the throughput, latency percentiles and error rate of each.
+ *
+ * The application is started with the "loadtest" profile, which points it at
+ * an empty in-memory H2 database in MySQL mode, so the run needs no server and
+ * starts from the same state every time. It is seeded with
+ * {@code loadtest.books} books and {@code loadtest.customers} customers, after
+ * which {@code loadtest.clients} concurrent clients each pick a random
+ * operation by weight, call it, and repeat, for a warm-up and then a measured
+ * period. A call is an error if it fails or answers with a status the route
+ * does not answer with in normal use.
+ *
+ * Run with {@code mvn test -Ploadtest}. Besides the properties above, the run
+ * can be tuned with {@code -Dloadtest.seconds}, {@code -Dloadtest.warmup-seconds}
+ * and {@code -Dloadtest.mix}, which overrides operation weights, e.g.
+ * {@code -Dloadtest.mix=SEARCH=50,GET_ALL_BOOKS=0}.
+ */
+class MixedWorkloadLoadTest {
+
+	private static final int BOOKS = Integer.getInteger("loadtest.books", 10000);
+
+	private static final int CUSTOMERS = Integer.getInteger("loadtest.customers", 1000);
+
+	private static final int CLIENTS = Integer.getInteger("loadtest.clients", 64);
+
+	private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 10));
+
+	private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("loadtest.seconds", 30));
+
+	/** The number of extra books and customers seeded for the delete operations to remove. */
+	private static final int DELETABLE = 10000;
+
+	private static final String[] WORDS = { "wizard", "river", "empire", "garden", "winter", "machine", "ocean",
+			"silent", "journey", "letters", "shadow", "harvest", "crown", "mountain", "stranger", "island", "memory",
+			"thunder", "lantern", "forest", "whisper", "kingdom", "voyage", "mirror" };
+
+	/** The ids of the seeded books and customers the operations work on. */
+	private record Catalogue(int[] books, UUID[] customers, int[] deletableBooks, UUID[] deletableCustomers,
+			AtomicInteger nextBookToDelete, AtomicInteger nextCustomerToDelete) {
+	}
+
+	/** The calls made by the workload, with their default weights. */
+	private enum Operation {
+		HOME(2),
+		GET_ALL_BOOKS(1),
+		STREAM_ALL_BOOKS(1),
+		GET_BOOKS(5),
+		SEARCH(25),
+		SEARCH_BY_ID(5),
+		SEARCH_MATCHES(5),
+		SUGGEST(10),
+		ADD_BOOK(5, 200),
+		ADD_BOOKS(1, 200),
+		ADD_CUSTOMER(2, 200),
+		ADD_CUSTOMERS(1, 200),
+		UPDATE_BOOK(5, 200),
+		UPDATE_CUSTOMER(2, 200),
+		DELETE_BOOK(1, 200),
+		DELETE_CUSTOMER(1, 200),
+		ADD_CUSTOMER_TO_BOOK(5, 200, 409),
+		ADD_BOOK_TO_CUSTOMER(2, 200, 409),
+		CHECKOUT(2, 200);
+
+		private final int defaultWeight;
+
+		private final Set<Integer> expectedStatuses;
+
+		Operation(int defaultWeight, Integer... expectedStatuses) {
+			this.defaultWeight = defaultWeight;
+			this.expectedStatuses = expectedStatuses.length == 0 ? Set.of(200) : Set.of(expectedStatuses);
+		}
+	}
+
+	@Test
+	void runMixedWorkload() throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LmsApplication.class)
+				.profiles("loadtest")
+				.run()) {
+			Catalogue catalogue = seed(context.getBean(BookDao.class), context.getBean(CustomerDao.class));
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			report(load("http://localhost:" + port, catalogue, weights()));
+		}
+	}
+
+	private static Catalogue seed(BookDao bookDao, CustomerDao customerDao) {
+		SplittableRandom random = new SplittableRandom(42);
+		int[] books = new int[BOOKS + DELETABLE];
+		List<Book> bookBatch = new ArrayList<>();
+		for (int i = 0; i < books.length; i++) {
+			bookBatch.add(book(random));
+			if (bookBatch.size() == 1000 || i == books.length - 1) {
+				bookDao.addBooks(bookBatch);
+				for (int j = 0; j < bookBatch.size(); j++) {
+					books[i - bookBatch.size() + 1 + j] = bookBatch.get(j).getId();
+				}
+				bookBatch = new ArrayList<>();
+			}
+		}
+
+		UUID[] customers = new UUID[CUSTOMERS + DELETABLE];
+		List<Customer> customerBatch = new ArrayList<>();
+		for (int i = 0; i < customers.length; i++) {
+			customerBatch.add(customer(random));
+			if (customerBatch.size() == 1000 || i == customers.length - 1) {
+				customerDao.addCustomers(customerBatch);
+				for (int j = 0; j < customerBatch.size(); j++) {
+					customers[i - customerBatch.size() + 1 + j] = customerBatch.get(j).getId();
+				}
+				customerBatch = new ArrayList<>();
+			}
+		}
+
+		return new Catalogue(Arrays.copyOf(books, BOOKS), Arrays.copyOf(customers, CUSTOMERS),
+				Arrays.copyOfRange(books, BOOKS, books.length),
+				Arrays.copyOfRange(customers, CUSTOMERS, customers.length), new AtomicInteger(),
+				new AtomicInteger());
+	}
+
+	private static Book book(SplittableRandom random) {
+		Book book = new Book();
+		book.setName(word(random) + " " + word(random));
+		book.setAuthor(word(random) + " " + word(random));
+		book.setCategory(word(random));
+		book.setDescription("A " + word(random) + " of " + word(random) + " and " + word(random));
+		book.setPrice(100 + random.nextInt(900));
+		return book;
+	}
+
+	private static Customer customer(SplittableRandom random) {
+		Customer customer = new Customer();
+		customer.setName(word(random) + " " + word(random));
+		customer.setPhone(9000000000L + random.nextInt(100000000));
+		customer.setAddress(random.nextInt(1000) + " " + word(random) + " street");
+		return customer;
+	}
+
+	private static String word(SplittableRandom random) {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+
+	/**
+	 * Returns the weight of each operation, with the overrides given in
+	 * {@code loadtest.mix}.
+	 */
+	private static Map<Operation, Integer> weights() {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (Operation operation : Operation.values()) {
+			weights.put(operation, operation.defaultWeight);
+		}
+		String mix = System.getProperty("loadtest.mix", "");
+		for (String entry : mix.split(",")) {
+			if (!entry.isBlank()) {
+				String[] parts = entry.split("=");
+				weights.put(Operation.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Builds the request for one call of the given operation, or returns null if
+	 * the operation has nothing left to work on.
+	 */
+	private static HttpRequest request(Operation operation, String base, String csrfToken, Catalogue catalogue,
+			SplittableRandom random) {
+		int bookId = catalogue.books()[random.nextInt(catalogue.books().length)];
+		UUID customerId = catalogue.customers()[random.nextInt(catalogue.customers().length)];
+		String path;
+		String method = "GET";
+		String body = null;
+		String contentType = "application/json";
+		String accept = "application/json";
+		switch (operation) {
+		case HOME -> path = "/";
+		case GET_ALL_BOOKS -> path = "/getallbook";
+		case STREAM_ALL_BOOKS -> {
+			path = "/getallbook";
+			accept = "application/x-ndjson";
+		}
+		case GET_BOOKS -> path = "/getbooks?size=100";
+		case SEARCH -> path = "/search/" + word(random);
+		case SEARCH_BY_ID -> path = "/search/" + bookId;
+		case SEARCH_MATCHES -> path = "/search/" + word(random) + "%20" + word(random) + "/matches";
+		case SUGGEST -> path = "/suggest/" + word(random).substring(0, 3);
+		case ADD_BOOK -> {
+			path = "/addbook";
+			method = "POST";
+			body = bookJson(random);
+		}
+		case ADD_BOOKS -> {
+			path = "/addbooks";
+			method = "POST";
+			contentType = "application/x-ndjson";
+			StringBuilder lines = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				lines.append(bookJson(random)).append('\n');
+			}
+			body = lines.toString();
+		}
+		case ADD_CUSTOMER -> {
+			path = "/addcustomer";
+			method = "POST";
+			body = customerJson(random);
+		}
+		case ADD_CUSTOMERS -> {
+			path = "/addcustomers";
+			method = "POST";
+			contentType = "application/x-ndjson";
+			StringBuilder lines = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				lines.append(customerJson(random)).append('\n');
+			}
+			body = lines.toString();
+		}
+		case UPDATE_BOOK -> {
+			path = "/updatebook" + bookId;
+			method = "PUT";
+			body = bookJson(random);
+		}
+		case UPDATE_CUSTOMER -> {
+			path = "/updatecustomer/" + customerId;
+			method = "PUT";
+			body = customerJson(random);
+		}
+		case DELETE_BOOK -> {
+			int next = catalogue.nextBookToDelete().getAndIncrement();
+			if (next >= catalogue.deletableBooks().length) {
+				return null;
+			}
+			path = "/deletebook" + catalogue.deletableBooks()[next];
+			method = "DELETE";
+		}
+		case DELETE_CUSTOMER -> {
+			int next = catalogue.nextCustomerToDelete().getAndIncrement();
+			if (next >= catalogue.deletableCustomers().length) {
+				return null;
+			}
+			path = "/deletecustomer/" + catalogue.deletableCustomers()[next];
+			method = "POST";
+		}
+		case ADD_CUSTOMER_TO_BOOK -> {
+			path = "/addcustomertobook" + bookId + "/customerid" + customerId;
+			method = "PUT";
+		}
+		case ADD_BOOK_TO_CUSTOMER -> {
+			path = "/addbooktocustomer" + bookId + "/customerid" + customerId;
+			method = "PUT";
+		}
+		case CHECKOUT -> {
+			path = "/checkout";
+			method = "PUT";
+			StringBuilder items = new StringBuilder("[");
+			for (int i = 0; i < 10; i++) {
+				items.append(i == 0 ? "" : ",")
+						.append("{\"customerId\":\"")
+						.append(catalogue.customers()[random.nextInt(catalogue.customers().length)])
+						.append("\",\"bookId\":")
+						.append(catalogue.books()[random.nextInt(catalogue.books().length)])
+						.append('}');
+			}
+			body = items.append(']').toString();
+		}
+		default -> throw new IllegalArgumentException(operation.name());
+		}
+
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+				.header("Accept", accept)
+				.timeout(Duration.ofSeconds(60));
+		if (method.equals("GET")) {
+			return request.GET().build();
+		}
+		return request.header("Content-Type", contentType)
+				.header("X-CSRF-TOKEN", csrfToken)
+				.method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+						: HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+
+	private static String bookJson(SplittableRandom random) {
+		return "{\"name\":\"" + word(random) + " " + word(random) + "\",\"author\":\"" + word(random)
+				+ "\",\"category\":\"" + word(random) + "\",\"description\":\"A " + word(random) + " of "
+				+ word(random) + "\",\"price\":" + (100 + random.nextInt(900)) + "}";
+	}
+
+	private static String customerJson(SplittableRandom random) {
+		return "{\"name\":\"" + word(random) + " " + word(random) + "\",\"phone\":"
+				+ (9000000000L + random.nextInt(100000000)) + ",\"address\":\"" + word(random) + " street\"}";
+	}
+
+	/**
+	 * Lets every client pick and call operations back to back, first for the
+	 * warm-up and then for the measurement, and collects the measured calls of
+	 * each operation.
+	 */
+	private static Map<Operation, HttpLoad.Samples> load(String base, Catalogue catalogue,
+			Map<Operation, Integer> weights) throws Exception {
+		Operation[] operations = Operation.values();
+		int[] cumulative = new int[operations.length];
+		int total = 0;
+		for (int i = 0; i < operations.length; i++) {
+			total += weights.get(operations[i]);
+			cumulative[i] = total;
+		}
+		int totalWeight = total;
+
+		// the first unexpected status of each operation, to tell what went wrong
+		Map<Operation, Integer> firstErrors = new ConcurrentHashMap<>();
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+				HttpClient http = HttpClient.newBuilder()
+						.executor(clients)
+						.cookieHandler(new CookieManager())
+						.build()) {
+			String csrfToken = HttpLoad.logIn(http, base);
+			long measureFrom = System.nanoTime() + WARMUP.toNanos();
+			long measureTo = measureFrom + MEASUREMENT.toNanos();
+
+			List<Future<Map<Operation, HttpLoad.Samples>>> futures = new ArrayList<>();
+			for (int c = 0; c < CLIENTS; c++) {
+				SplittableRandom random = new SplittableRandom(c);
+				futures.add(clients.submit(() -> {
+					Map<Operation, HttpLoad.Samples> samples = new EnumMap<>(Operation.class);
+					long start;
+					while ((start = System.nanoTime()) < measureTo) {
+						int pick = random.nextInt(totalWeight);
+						int index = 0;
+						while (cumulative[index] <= pick) {
+							index++;
+						}
+						Operation operation = operations[index];
+						HttpRequest request = request(operation, base, csrfToken, catalogue, random);
+						if (request == null) {
+							continue;
+						}
+
+						int status;
+						try {
+							status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+						} catch (IOException e) {
+							status = -1;
+						}
+						long end = System.nanoTime();
+						if (start >= measureFrom && end <= measureTo) {
+							HttpLoad.Samples operationSamples = samples.computeIfAbsent(operation,
+									o -> new HttpLoad.Samples());
+							if (operation.expectedStatuses.contains(status)) {
+								operationSamples.add(end - start);
+							} else {
+								operationSamples.addError();
+								firstErrors.putIfAbsent(operation, status);
+							}
+						}
+					}
+					return samples;
+				}));
+			}
+
+			Map<Operation, HttpLoad.Samples> all = new EnumMap<>(Operation.class);
+			for (Future<Map<Operation, HttpLoad.Samples>> future : futures) {
+				future.get().forEach((operation, samples) -> all
+						.computeIfAbsent(operation, o -> new HttpLoad.Samples())
+						.addAll(samples));
+			}
+			firstErrors.forEach((operation, status) -> System.out.printf("%s first failed with %s%n", operation,
+					status < 0 ? "an I/O error" : "status " + status));
+			return all;
+		}
+	}
+
+	private static void report(Map<Operation, HttpLoad.Samples> results) {
+		double seconds = MEASUREMENT.toNanos() / 1e9;
+		System.out.printf("%d books, %d customers, %d clients, %d s%n", BOOKS, CUSTOMERS, CLIENTS,
+				MEASUREMENT.toSeconds());
+		System.out.printf("%-22s %9s %9s %9s %9s %9s %8s%n", "operation", "calls", "req/s", "p50 ms", "p99 ms",
+				"p999 ms", "errors");
+		HttpLoad.Samples total = new HttpLoad.Samples();
+		results.forEach((operation, samples) -> {
+			print(operation.name(), samples, seconds);
+			total.addAll(samples);
+		});
+		print("TOTAL", total, seconds);
+	}
+
+	private static void print(String name, HttpLoad.Samples samples, double seconds) {
+		long[] latencies = samples.sorted();
+		long calls = samples.count() + samples.errors();
+		System.out.printf("%-22s %9d %9.1f %9.2f %9.2f %9.2f %7.2f%%%n", name, calls, calls / seconds,
+				HttpLoad.percentile(latencies, 0.50) / 1e6, HttpLoad.percentile(latencies, 0.99) / 1e6,
+				HttpLoad.percentile(latencies, 0.999) / 1e6, calls == 0 ? 0 : 100.0 * samples.errors() / calls);
+	}
+}
@@ -0,0 +1,170 @@
+package com.anudip.lms;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.anudip.lms.dao.BookDao;
+import com.anudip.lms.model.Book;
+
+/**
+ * Compares the throughput of the application on platform threads and on
+ * virtual threads ({@code spring.threads.virtual.enabled}).
+ *
+ * The application is started once per thread model against the configured
+ * database, which should be a scratch schema: books are added to it until it
+ * holds {@code benchmark.books} of them. Many concurrent clients then call
+ * {@code /search/{keyword}} and {@code /getallbook} in turn for a fixed time,
+ * and the requests per second and latency percentiles are printed. The clients
+ * share one logged-in session, so the password check is not measured.
+ *
+ * Run with {@code mvn test -Pbenchmark}, pointing the application at the
+ * scratch schema with {@code -Dspring.datasource.url=...}. The load can be
+ * tuned with {@code -Dbenchmark.clients}, {@code -Dbenchmark.seconds},
+ * {@code -Dbenchmark.warmup-seconds} and {@code -Dbenchmark.books}.
+ */
+class ThreadModelBenchmark {
+
+	private static final int CLIENTS = Integer.getInteger("benchmark.clients", 400);
+
+	private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup-seconds", 5));
+
+	private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.seconds", 20));
+
+	private static final int BOOKS = Integer.getInteger("benchmark.books", 1000);
+
+	private static final String[] WORDS = { "wizard", "river", "empire", "garden", "winter", "machine", "ocean",
+			"silent", "journey", "letters" };
+
+	/** The throughput and latency of one endpoint under one thread model. */
+	private record Result(String endpoint, boolean virtualThreads, long requests, long errors, double seconds,
+			long[] latencies) {
+
+		private long percentile(double p) {
+			return HttpLoad.percentile(latencies, p);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-12s %-8s %9.1f req/s  p50 %6.2f ms  p99 %7.2f ms  errors %d", endpoint,
+					virtualThreads ? "virtual" : "platform", requests / seconds, percentile(0.50) / 1e6,
+					percentile(0.99) / 1e6, errors);
+		}
+	}
+
+	@Test
+	void compareThreadModels() throws Exception {
+		List<Result> results = new ArrayList<>();
+		results.addAll(run(false));
+		results.addAll(run(true));
+
+		System.out.printf("%d clients, %d s per endpoint%n", CLIENTS, MEASUREMENT.toSeconds());
+		results.forEach(System.out::println);
+	}
+
+	private List<Result> run(boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LmsApplication.class)
+				.properties("server.port=0", "spring.threads.virtual.enabled=" + virtualThreads)
+				.run()) {
+			seed(context.getBean(BookDao.class));
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			String base = "http://localhost:" + port;
+
+			List<Result> results = new ArrayList<>();
+			results.add(load(base, "/search", virtualThreads,
+					client -> "/search/" + URLEncoder.encode(WORDS[client % WORDS.length], StandardCharsets.UTF_8)));
+			results.add(load(base, "/getallbook", virtualThreads, client -> "/getallbook"));
+			return results;
+		}
+	}
+
+	private static void seed(BookDao bookDao) {
+		int missing = BOOKS - bookDao.getAllBooks(false).size();
+		List<Book> batch = new ArrayList<>();
+		for (int i = 0; i < missing; i++) {
+			Book book = new Book();
+			book.setName(WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length]);
+			book.setAuthor("Author " + i);
+			book.setCategory("Benchmark");
+			book.setDescription("A " + WORDS[(i * 7) % WORDS.length] + " of " + WORDS[(i * 3) % WORDS.length]);
+			book.setPrice(100 + i % 900);
+			batch.add(book);
+			if (batch.size() == 500 || i == missing - 1) {
+				bookDao.addBooks(batch);
+				batch = new ArrayList<>();
+			}
+		}
+	}
+
+	private interface Target {
+		String uri(int client);
+	}
+
+	/**
+	 * Lets every client call the endpoint back to back, first for the warm-up and
+	 * then for the measurement, and collects the measured calls.
+	 */
+	private static Result load(String base, String endpoint, boolean virtualThreads, Target target)
+			throws Exception {
+		// the clients themselves always run on virtual threads, so only the server's
+		// thread model differs between the runs
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+				HttpClient http = HttpClient.newBuilder()
+						.executor(clients)
+						.cookieHandler(new CookieManager())
+						.build()) {
+			HttpLoad.logIn(http, base);
+			long measureFrom = System.nanoTime() + WARMUP.toNanos();
+			long measureTo = measureFrom + MEASUREMENT.toNanos();
+
+			List<Future<HttpLoad.Samples>> futures = new ArrayList<>();
+			for (int c = 0; c < CLIENTS; c++) {
+				HttpRequest request = HttpRequest.newBuilder(URI.create(base + target.uri(c))).build();
+				futures.add(clients.submit(() -> {
+					HttpLoad.Samples samples = new HttpLoad.Samples();
+					long start;
+					while ((start = System.nanoTime()) < measureTo) {
+						boolean ok;
+						try {
+							ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+						} catch (IOException e) {
+							ok = false;
+						}
+						long end = System.nanoTime();
+						if (start >= measureFrom && end <= measureTo) {
+							if (ok) {
+								samples.add(end - start);
+							} else {
+								samples.addError();
+							}
+						}
+					}
+					return samples;
+				}));
+			}
+
+			HttpLoad.Samples all = new HttpLoad.Samples();
+			for (Future<HttpLoad.Samples> future : futures) {
+				all.addAll(future.get());
+			}
+			return new Result(endpoint, virtualThreads, all.count(), all.errors(), MEASUREMENT.toNanos() / 1e9,
+					all.sorted());
+		}
+	}
+}
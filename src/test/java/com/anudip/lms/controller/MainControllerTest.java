@@ -0,0 +1,85 @@
+package com.anudip.lms.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.anudip.lms.daoImpl.BookDaoImpl;
+import com.anudip.lms.dto.PageToken;
+import com.anudip.lms.model.Book;
+
+/**
+ * Sends requests to the book endpoints of an application on an in-memory
+ * database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(roles = "ADMIN")
+class MainControllerTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private BookDaoImpl bookDao;
+
+	@Test
+	void listsTheFirstPageOfBooks() throws Exception {
+		mvc.perform(get("/getbooks").param("size", "5"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.books").isArray());
+	}
+
+	@Test
+	void rejectsAMalformedPageToken() throws Exception {
+		mvc.perform(get("/getbooks").param("token", "garbage!")).andExpect(status().isBadRequest());
+		mvc.perform(get("/getbooks").param("token", "AQ")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void acceptsATokenPastTheLastBook() throws Exception {
+		mvc.perform(get("/getbooks").param("token", PageToken.encode(Integer.MAX_VALUE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.books").isEmpty())
+				.andExpect(jsonPath("$.next").doesNotExist());
+	}
+
+	@Test
+	void searchesEveryMatchUnlessAPageIsRequested() throws Exception {
+		// more matches than the default limit of 20
+		for (int i = 0; i < 25; i++) {
+			Book book = new Book();
+			book.setName("Quixote " + i);
+			book.setAuthor("Cervantes");
+			bookDao.addBook(book);
+		}
+
+		mvc.perform(get("/search/quixote")).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(25)));
+		mvc.perform(get("/search/quixote").param("limit", "5")).andExpect(jsonPath("$", hasSize(5)));
+		mvc.perform(get("/search/quixote").param("offset", "0")).andExpect(jsonPath("$", hasSize(20)));
+		mvc.perform(get("/search/quixote").param("offset", "20")).andExpect(jsonPath("$", hasSize(5)));
+	}
+
+	@Test
+	void suggestsCompletionsOfTheLastWord() throws Exception {
+		Book book = new Book();
+		book.setName("Rocinante Rides Again");
+		book.setAuthor("Cervantes");
+		bookDao.addBook(book);
+
+		mvc.perform(get("/suggest/rides roci")).andExpect(status().isOk())
+				.andExpect(jsonPath("$[0]").value("rides rocinante"));
+		mvc.perform(get("/suggest/rocinnate")).andExpect(jsonPath("$[0]").value("rocinante"));
+		mvc.perform(get("/suggest/zzzz")).andExpect(jsonPath("$").isEmpty());
+	}
+}
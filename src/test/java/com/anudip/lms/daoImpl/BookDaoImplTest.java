@@ -0,0 +1,133 @@
+package com.anudip.lms.daoImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.anudip.lms.dto.BookPage;
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.repository.BookRepository;
+import com.anudip.lms.repository.BookTombstoneRepository;
+
+/**
+ * Lists the books of an in-memory database one keyset page at a time, and
+ * removes them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BookDaoImplTest {
+
+	@Autowired
+	private BookDaoImpl bookDao;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookTombstoneRepository bookTombstoneRepository;
+
+	@Test
+	void pagesThroughEveryBookOnce() {
+		addBooks(11);
+		List<Integer> expected = ids(bookRepository.findAllSummaries());
+		expected.sort(null);
+
+		for (int pageSize : new int[] { 1, 3, expected.size(), expected.size() + 1 }) {
+			List<Integer> seen = new ArrayList<>();
+			String token = null;
+			int pages = 0;
+			do {
+				BookPage page = bookDao.getBooks(token, pageSize, false);
+				assertThat(page.books()).hasSizeLessThanOrEqualTo(pageSize);
+				seen.addAll(ids(page.books()));
+				token = page.next();
+				pages++;
+			} while (token != null);
+
+			assertThat(seen).as("pages of %d", pageSize).isEqualTo(expected);
+			assertThat(pages).isBetween(expected.size() / pageSize, expected.size() / pageSize + 1);
+		}
+	}
+
+	@Test
+	void walksTheSamePagesAsTheListing() {
+		addBooks(5);
+		List<Integer> expected = ids(bookRepository.findAllSummaries());
+		expected.sort(null);
+
+		List<Integer> seen = new ArrayList<>();
+		Set<Integer> pageSizes = new HashSet<>();
+		bookDao.forEachPage(2, books -> {
+			seen.addAll(ids(books));
+			pageSizes.add(books.size());
+		});
+
+		assertThat(seen).isEqualTo(expected);
+		assertThat(pageSizes).allMatch(size -> size >= 1 && size <= 2);
+	}
+
+	@Test
+	void resumesAfterABookRemovedBetweenPages() {
+		addBooks(4);
+		BookPage first = bookDao.getBooks(null, 2, false);
+		int last = first.books().get(1).id();
+		bookDao.removeBook(last);
+
+		BookPage second = bookDao.getBooks(first.next(), 2, false);
+
+		assertThat(second.books()).extracting(BookSummary::id).allMatch(id -> id > last);
+	}
+
+	@Test
+	void rejectsAMalformedToken() {
+		// the repository translates the exception
+		assertThatThrownBy(() -> bookDao.getBooks("garbage!", 10, false))
+				.isInstanceOf(InvalidDataAccessApiUsageException.class)
+				.hasCauseInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void recordsATombstoneOnlyForARemovedBook() {
+		addBooks(1);
+		int id = ids(bookRepository.findAllSummaries()).stream().max(Integer::compare).orElseThrow();
+		Instant before = Instant.now().minusSeconds(1);
+
+		bookDao.removeBook(id);
+		bookDao.removeBook(id);
+		bookDao.removeBook(-1);
+
+		assertThat(bookRepository.existsById(id)).isFalse();
+		assertThat(bookTombstoneRepository.findBookIdsDeletedAfter(before)).containsOnlyOnce(id)
+				.doesNotContain(-1);
+	}
+
+	private void addBooks(int count) {
+		for (int i = 0; i < count; i++) {
+			Book book = new Book();
+			book.setName("Paged " + i);
+			book.setAuthor("Anon");
+			book.setPrice(100);
+			bookDao.addBook(book);
+		}
+	}
+
+	private static List<Integer> ids(List<BookSummary> books) {
+		List<Integer> ids = new ArrayList<>();
+		for (BookSummary book : books) {
+			ids.add(book.id());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,50 @@
+package com.anudip.lms.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that continuation tokens decode to the id they were encoded from, and
+ * that anything else is rejected.
+ */
+class PageTokenTest {
+
+	@Test
+	void decodesTheEncodedId() {
+		for (int id : new int[] { 0, 1, 42, 65_536, -1, Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+			assertThat(PageToken.decode(PageToken.encode(id))).isEqualTo(id);
+		}
+	}
+
+	@Test
+	void encodesUrlSafeTokens() {
+		assertThat(PageToken.encode(Integer.MAX_VALUE)).matches("[A-Za-z0-9_-]+");
+		assertThat(PageToken.encode(-2)).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void rejectsMalformedTokens() {
+		assertThatIllegalArgumentException().isThrownBy(() -> PageToken.decode("not a token!"));
+		assertThatIllegalArgumentException().isThrownBy(() -> PageToken.decode(""));
+		assertThatIllegalArgumentException().isThrownBy(() -> PageToken.decode(token(1, 0, 0, 0)));
+		assertThatIllegalArgumentException().isThrownBy(() -> PageToken.decode(token(1, 0, 0, 0, 7, 0)));
+	}
+
+	@Test
+	void rejectsTokensOfAnotherVersion() {
+		assertThatIllegalArgumentException().isThrownBy(() -> PageToken.decode(token(2, 0, 0, 0, 7)));
+		assertThat(PageToken.decode(token(1, 0, 0, 0, 7))).isEqualTo(7);
+	}
+
+	private static String token(int... bytes) {
+		byte[] raw = new byte[bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			raw[i] = (byte) bytes[i];
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+	}
+}
@@ -0,0 +1,139 @@
+package com.anudip.lms.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.anudip.lms.dto.CheckoutItem;
+import com.anudip.lms.dto.CheckoutItemResult;
+import com.anudip.lms.dto.CheckoutResult;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.model.Customer;
+
+/**
+ * Checks books out to customers in an in-memory database, one at a time and in
+ * batches.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CustomerBookRepositoryTest {
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void linksACustomerToABook() {
+		UUID customer = customer("Ada");
+		int book = book("Dune");
+
+		assertThat(customerRepository.link(customer, book)).isEqualTo(CheckoutResult.LINKED);
+		assertThat(links(customer)).isEqualTo(1);
+	}
+
+	@Test
+	void reportsARepeatedCheckout() {
+		UUID customer = customer("Alan");
+		int book = book("Emma");
+		customerRepository.link(customer, book);
+
+		assertThat(customerRepository.link(customer, book)).isEqualTo(CheckoutResult.ALREADY_LINKED);
+		assertThat(links(customer)).isEqualTo(1);
+	}
+
+	@Test
+	void reportsAMissingCustomer() {
+		int book = book("Mort");
+
+		assertThat(customerRepository.link(UUID.randomUUID(), book)).isEqualTo(CheckoutResult.MISSING_CUSTOMER);
+		assertThat(customerRepository.link(UUID.randomUUID(), -1)).isEqualTo(CheckoutResult.MISSING_CUSTOMER);
+	}
+
+	@Test
+	void reportsAMissingBook() {
+		UUID customer = customer("Grace");
+
+		assertThat(customerRepository.link(customer, -1)).isEqualTo(CheckoutResult.MISSING_BOOK);
+		assertThat(links(customer)).isZero();
+	}
+
+	@Test
+	void linksTheSameBookToSeveralCustomers() {
+		int book = book("Sabriel");
+		UUID first = customer("Ada");
+		UUID second = customer("Alan");
+
+		assertThat(customerRepository.link(first, book)).isEqualTo(CheckoutResult.LINKED);
+		assertThat(customerRepository.link(second, book)).isEqualTo(CheckoutResult.LINKED);
+	}
+
+	@Test
+	void reportsTheOutcomeOfEachItemOfABatchInOrder() {
+		UUID ada = customer("Ada");
+		UUID alan = customer("Alan");
+		int dune = book("Dune");
+		int emma = book("Emma");
+		customerRepository.link(alan, emma);
+		UUID stranger = UUID.randomUUID();
+
+		List<CheckoutItem> items = Arrays.asList(new CheckoutItem(ada, dune), new CheckoutItem(null, dune),
+				new CheckoutItem(ada, -1), new CheckoutItem(alan, emma), new CheckoutItem(ada, dune),
+				new CheckoutItem(stranger, emma), new CheckoutItem(alan, dune), new CheckoutItem(ada, emma));
+
+		assertThat(customerRepository.linkAll(items)).containsExactly(
+				new CheckoutItemResult(ada, dune, CheckoutResult.LINKED),
+				new CheckoutItemResult(null, dune, CheckoutResult.MISSING_CUSTOMER),
+				new CheckoutItemResult(ada, -1, CheckoutResult.MISSING_BOOK),
+				new CheckoutItemResult(alan, emma, CheckoutResult.ALREADY_LINKED),
+				new CheckoutItemResult(ada, dune, CheckoutResult.ALREADY_LINKED),
+				new CheckoutItemResult(stranger, emma, CheckoutResult.MISSING_CUSTOMER),
+				new CheckoutItemResult(alan, dune, CheckoutResult.LINKED),
+				new CheckoutItemResult(ada, emma, CheckoutResult.LINKED));
+		assertThat(links(ada)).isEqualTo(2);
+		assertThat(links(alan)).isEqualTo(2);
+		assertThat(customerRepository.link(ada, dune)).isEqualTo(CheckoutResult.ALREADY_LINKED);
+	}
+
+	@Test
+	void reportsEveryItemMissingWithoutAnyCustomer() {
+		int book = book("Mort");
+
+		assertThat(customerRepository.linkAll(Arrays.asList(new CheckoutItem(null, book), new CheckoutItem(null, -1))))
+				.extracting(CheckoutItemResult::result)
+				.containsExactly(CheckoutResult.MISSING_CUSTOMER, CheckoutResult.MISSING_CUSTOMER);
+		assertThat(customerRepository.linkAll(List.of())).isEmpty();
+	}
+
+	private UUID customer(String name) {
+		Customer customer = new Customer();
+		customer.setName(name);
+		customer.setPhone(5550000L);
+		customer.setAddress("London");
+		return customerRepository.save(customer).getId();
+	}
+
+	private int book(String name) {
+		Book book = new Book();
+		book.setName(name);
+		book.setAuthor("Anon");
+		return bookRepository.save(book).getId();
+	}
+
+	private int links(UUID customer) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer_book WHERE customer_id = ?",
+				Integer.class, (Object) CustomerBookRepositoryImpl.toBytes(customer));
+	}
+}
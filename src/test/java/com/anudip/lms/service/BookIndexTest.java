@@ -0,0 +1,261 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.Book;
+import com.anudip.lms.model.BookField;
+
+/**
+ * Checks that the index finds the books containing every token of a keyword,
+ * or a completion or close spelling of it, and follows the books as they are
+ * saved and removed.
+ */
+class BookIndexTest {
+
+	private static final List<BookSummary> BOOKS = List.of(
+			new BookSummary(1, "Harry Potter and the Philosopher's Stone", "J. K. Rowling", null,
+					"A boy learns he is a wizard", 0),
+			new BookSummary(2, "Harry Potter and the Chamber of Secrets", "J. K. Rowling", null, null, 0),
+			new BookSummary(3, "The Hobbit", "J. R. R. Tolkien", null, "A wizard, thirteen dwarves and a dragon", 0),
+			new BookSummary(4, "The Stone Diaries", "Carol Shields", null, "A life told in stone and letters", 0),
+			new BookSummary(5, "Les Misérables", "Victor Hugo", null, "Jean Valjean and the barricades", 0),
+			new BookSummary(6, "Dune", "Frank Herbert", null, "Spice, sand and a boy", 0),
+			new BookSummary(7, "Harriet the Spy", "Louise Fitzhugh", null, null, 0),
+			new BookSummary(8, null, null, null, null, 0));
+
+	private BookIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new BookIndex();
+		index.setNameWeight(3.0);
+		index.setAuthorWeight(2.0);
+		index.setDescriptionWeight(1.0);
+		index.rebuild(CatalogueSnapshot.of(BOOKS));
+	}
+
+	@Test
+	void splitsTextIntoNormalizedTokens() {
+		assertThat(BookIndex.tokenize("Harry Potter & the Philosopher's Stone"))
+				.containsExactly("harry", "potter", "the", "philosopher", "s", "stone");
+		assertThat(BookIndex.tokenize("The  the THE")).containsExactly("the");
+		assertThat(BookIndex.tokenize("Les Misérables, 1862")).containsExactly("les", "miserables", "1862");
+		assertThat(BookIndex.tokenize("  -- ")).isEmpty();
+		assertThat(BookIndex.tokenize((String) null)).isEmpty();
+	}
+
+	@Test
+	void findsTheSameBooksAsABruteForceMatch() {
+		for (String keyword : List.of("harry", "stone", "harry stone", "wizard boy", "the", "the and", "rowling harry",
+				"MISERABLES", "misérables hugo", "a", "dragon wizard", "potter chamber secrets", "stone dune")) {
+			assertThat(ids(index.search(keyword))).as(keyword).isEqualTo(bruteForce(keyword));
+		}
+	}
+
+	@Test
+	void findsOnlyBooksWithEveryToken() {
+		assertThat(ids(index.search("harry stone"))).containsExactly(1);
+		assertThat(ids(index.search("stone harry"))).containsExactly(1);
+		assertThat(ids(index.search("harry dragon"))).isEmpty();
+		assertThat(ids(index.search("harry qqqq"))).isEmpty();
+		assertThat(index.search("")).isEmpty();
+		assertThat(index.search(" ,. ")).isEmpty();
+	}
+
+	@Test
+	void reportsTheFieldsEachBookMatchedIn() {
+		List<BookMatch> matches = index.search("wizard");
+
+		assertThat(matches).extracting(BookMatch::bookId).containsExactly(1, 3);
+		assertThat(matches).extracting(BookMatch::fields).containsOnly(BookField.DESCRIPTION.mask());
+		assertThat(index.search("stone")).extracting(BookMatch::fields)
+				.containsExactly(BookField.NAME.mask(), BookField.NAME.mask() | BookField.DESCRIPTION.mask());
+	}
+
+	@Test
+	void removesABook() {
+		assertThat(index.contains(3)).isTrue();
+
+		assertThat(index.remove(3)).contains("hobbit", "tolkien", "wizard");
+		assertThat(index.contains(3)).isFalse();
+		assertThat(ids(index.search("hobbit"))).isEmpty();
+		assertThat(ids(index.search("wizard"))).containsExactly(1);
+		assertThat(index.remove(3)).isEmpty();
+	}
+
+	@Test
+	void reindexesASavedBook() {
+		Book book = new Book();
+		book.setId(6);
+		book.setName("Dune Messiah");
+		book.setAuthor("Frank Herbert");
+
+		assertThat(index.add(book)).contains("dune", "spice", "boy");
+		assertThat(ids(index.search("messiah"))).containsExactly(6);
+		assertThat(ids(index.search("spice"))).isEmpty();
+		assertThat(ids(index.search("boy"))).containsExactly(1);
+
+		book.setId(9);
+		assertThat(index.add(book)).isEmpty();
+		assertThat(index.contains(9)).isTrue();
+		assertThat(ids(index.search("dune messiah"))).containsExactly(6, 9);
+	}
+
+	@Test
+	void indexesABookWithoutText() {
+		assertThat(index.contains(8)).isTrue();
+		assertThat(index.contains(10)).isFalse();
+	}
+
+	@Test
+	void replacesEveryBookOnARebuild() {
+		Book book = new Book();
+		book.setId(20);
+		book.setName("Emma");
+		index.rebuild(List.of(book));
+
+		assertThat(index.contains(1)).isFalse();
+		assertThat(ids(index.search("harry"))).isEmpty();
+		assertThat(ids(index.search("emma"))).containsExactly(20);
+	}
+
+	@Test
+	void completesTheLastTokenAsAPrefix() {
+		assertThat(ids(index.search("tolk"))).containsExactly(3);
+		assertThat(ids(index.search("harr"))).containsExactly(1, 2, 7);
+		assertThat(ids(index.search("harry pot"))).containsExactly(1, 2);
+
+		// only the last token may be incomplete
+		assertThat(ids(index.search("tolk hobbit"))).isEmpty();
+	}
+
+	@Test
+	void toleratesOneTypoInAMediumToken() {
+		assertThat(ids(index.search("hobbot"))).containsExactly(3);
+		assertThat(ids(index.search("hobbot tolkien"))).containsExactly(3);
+		assertThat(ids(index.search("dume"))).containsExactly(6);
+
+		assertThat(ids(index.search("hobbbot"))).isEmpty();
+	}
+
+	@Test
+	void toleratesTwoTyposInALongToken() {
+		assertThat(ids(index.search("philosofer"))).containsExactly(1);
+		assertThat(ids(index.search("fitzhuhg"))).containsExactly(7);
+
+		assertThat(ids(index.search("filosofer"))).isEmpty();
+		assertThat(ids(index.search("philozofar"))).isEmpty();
+	}
+
+	@Test
+	void toleratesNoTypoInAShortToken() {
+		assertThat(ids(index.search("dun boy"))).isEmpty();
+		assertThat(ids(index.search("sxy"))).isEmpty();
+	}
+
+	@Test
+	void toleratesNoTypoInTheFirstCharacter() {
+		assertThat(ids(index.search("ohbbit"))).isEmpty();
+		assertThat(ids(index.search("gobbit"))).isEmpty();
+	}
+
+	@Test
+	void scoresExactThenPrefixThenFuzzyMatches() {
+		double exact = score("stone", "Stone");
+		double prefix = score("stone", "Stoner");
+		double fuzzy = score("stone", "Stane");
+
+		assertThat(prefix).isCloseTo(0.8 * exact, within(1e-9));
+		assertThat(fuzzy).isCloseTo(0.6 * exact, within(1e-9));
+	}
+
+	@Test
+	void expandsATokenToAtMostFiftyTerms() {
+		List<BookSummary> books = new ArrayList<>();
+		for (int id = 1; id <= 60; id++) {
+			books.add(new BookSummary(id, "wizard" + id, null, null, null, 0));
+		}
+		// the most common completion is always kept
+		for (int id = 61; id <= 65; id++) {
+			books.add(new BookSummary(id, "wizardry", null, null, null, 0));
+		}
+		index.rebuild(CatalogueSnapshot.of(books));
+
+		assertThat(ids(index.search("wizar"))).hasSize(49 + 5).contains(61, 62, 63, 64, 65);
+		assertThat(ids(index.search("wizardxx"))).hasSize(50);
+	}
+
+	@Test
+	void suggestsCompletionsMostCommonFirst() {
+		assertThat(index.suggest("harr", 10)).containsExactly("harry", "harriet");
+		assertThat(index.suggest("harr", 1)).containsExactly("harry");
+		assertThat(index.suggest("The  HOBB", 10)).containsExactly("the hobbit");
+	}
+
+	@Test
+	void suggestsTheTokenItselfFirst() {
+		assertThat(index.suggest("a", 2)).containsExactly("a", "and");
+	}
+
+	@Test
+	void suggestsCorrectionsOfATypo() {
+		assertThat(index.suggest("hobbot", 5)).containsExactly("hobbit");
+		assertThat(index.suggest("qqqq", 5)).isEmpty();
+	}
+
+	@Test
+	void suggestsNothingForNoText() {
+		assertThat(index.suggest("", 5)).isEmpty();
+		assertThat(index.suggest(" - ", 5)).isEmpty();
+		assertThat(index.suggest("harr", 0)).isEmpty();
+	}
+
+	/** Returns the score of the only book of an index, with the given name. */
+	private static double score(String keyword, String name) {
+		BookIndex single = new BookIndex();
+		single.setNameWeight(3.0);
+		single.rebuild(CatalogueSnapshot.of(List.of(new BookSummary(1, name, null, null, null, 0))));
+		return single.search(keyword).get(0).score();
+	}
+
+	/**
+	 * Returns the ids of the books in which every token of the keyword is a
+	 * word, or the last token starts one, by looking at every book. Only valid
+	 * for keywords whose tokens all occur in the catalogue, as no typos are
+	 * tolerated here.
+	 */
+	private static List<Integer> bruteForce(String keyword) {
+		List<String> tokens = new ArrayList<>(BookIndex.tokenize(keyword));
+		List<Integer> ids = new ArrayList<>();
+		for (BookSummary book : BOOKS) {
+			Set<String> words = BookIndex.tokenize(CatalogueSnapshot.searchedText(book));
+			boolean all = true;
+			for (int i = 0; i < tokens.size() && all; i++) {
+				String token = tokens.get(i);
+				boolean last = i == tokens.size() - 1;
+				all = words.stream().anyMatch(word -> word.equals(token) || (last && word.startsWith(token)));
+			}
+			if (all) {
+				ids.add(book.id());
+			}
+		}
+		return ids;
+	}
+
+	private static List<Integer> ids(List<BookMatch> matches) {
+		List<Integer> ids = new ArrayList<>();
+		for (BookMatch match : matches) {
+			ids.add(match.bookId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,123 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.anudip.lms.dto.ImportResult;
+import com.anudip.lms.repository.BookRepository;
+import com.anudip.lms.repository.CustomerRepository;
+
+/**
+ * Imports batches of books and customers into an in-memory database, including
+ * batches that fail as a whole and are then saved record by record.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkImportTest {
+
+	/** Longer than the 255 characters of a name column. */
+	private static final String TOO_LONG = "x".repeat(400);
+
+	@Autowired
+	private BulkImport bulkImport;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Test
+	void importsTheGoodBooksOfAFailedBatch() throws IOException {
+		long before = bookRepository.count();
+
+		ImportResult result = bulkImport.importBooks(ndjson(
+				"{\"name\":\"Dune\",\"author\":\"Herbert\",\"price\":300}",
+				"{\"name\":\"" + TOO_LONG + "\",\"author\":\"Nobody\",\"price\":100}",
+				"{\"name\":\"Emma\",\"author\":\"Austen\",\"price\":200}"));
+
+		assertThat(result.received()).isEqualTo(3);
+		assertThat(result.imported()).isEqualTo(2);
+		assertThat(result.failures()).singleElement().satisfies(failure -> {
+			assertThat(failure.index()).isEqualTo(1);
+			assertThat(failure.message()).containsIgnoringCase("too long").doesNotContain("detached");
+		});
+		assertThat(bookRepository.count()).isEqualTo(before + 2);
+	}
+
+	@Test
+	void importsTheGoodCustomersOfAFailedBatch() throws IOException {
+		long before = customerRepository.count();
+
+		ImportResult result = bulkImport.importCustomers(ndjson(
+				"{\"name\":\"Ada\",\"phone\":5550001,\"address\":\"London\"}",
+				"{\"name\":\"" + TOO_LONG + "\",\"phone\":5550002,\"address\":\"Nowhere\"}",
+				"{\"name\":\"Alan\",\"phone\":5550003,\"address\":\"Wilmslow\"}"));
+
+		assertThat(result.received()).isEqualTo(3);
+		assertThat(result.imported()).isEqualTo(2);
+		assertThat(result.failures()).singleElement().satisfies(failure -> {
+			assertThat(failure.index()).isEqualTo(1);
+			assertThat(failure.message()).containsIgnoringCase("too long").doesNotContain("detached");
+		});
+		assertThat(customerRepository.count()).isEqualTo(before + 2);
+	}
+
+	@Test
+	void reportsFailuresByTheirIndexInTheWholeStream() throws IOException {
+		long before = bookRepository.count();
+
+		// three batches of three: the second holds a bad record, the third a
+		// record that cannot be read as a book
+		ImportResult result = bulkImport.importBooks(ndjson(
+				book("Book 0"), book("Book 1"), book("Book 2"),
+				book("Book 3"), book(TOO_LONG), book("Book 5"),
+				book("Book 6"), "{\"name\":\"Book 7\",\"price\":\"cheap\"}", book("Book 8")));
+
+		assertThat(result.received()).isEqualTo(9);
+		assertThat(result.imported()).isEqualTo(7);
+		assertThat(result.failures()).extracting(ImportResult.RecordFailure::index).containsExactly(4, 7);
+		assertThat(result.failures().get(0).message()).containsIgnoringCase("too long");
+		assertThat(result.failures().get(1).message()).contains("cheap");
+		assertThat(bookRepository.count()).isEqualTo(before + 7);
+	}
+
+	@Test
+	void readsAJsonArray() throws IOException {
+		ImportResult result = bulkImport.importCustomers(new ByteArrayInputStream(
+				("[{\"name\":\"Grace\",\"phone\":5550010},{\"name\":\"" + TOO_LONG + "\",\"phone\":5550011}]")
+						.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.received()).isEqualTo(2);
+		assertThat(result.imported()).isEqualTo(1);
+		assertThat(result.failures()).extracting(ImportResult.RecordFailure::index).containsExactly(1);
+	}
+
+	@Test
+	void keepsTheRecordsBeforeMalformedJson() throws IOException {
+		ImportResult result = bulkImport.importBooks(ndjson(book("Before"), "{\"name\": oops"));
+
+		assertThat(result.received()).isEqualTo(2);
+		assertThat(result.imported()).isEqualTo(1);
+		assertThat(result.failures()).singleElement().satisfies(failure -> {
+			assertThat(failure.index()).isEqualTo(1);
+			assertThat(failure.message()).startsWith("Malformed JSON");
+		});
+	}
+
+	private static String book(String name) {
+		return "{\"name\":\"" + name + "\",\"author\":\"Anon\",\"price\":100}";
+	}
+
+	static ByteArrayInputStream ndjson(String... records) {
+		return new ByteArrayInputStream(String.join("\n", records).getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,52 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.anudip.lms.dto.BookSummary;
+
+/**
+ * Checks when catalogue scans are split, and that a split scan finds what a
+ * sequential one does.
+ */
+class CatalogueScanPoolTest {
+
+	private final double[] weights = { 3.0, 2.0, 1.0 };
+
+	@Test
+	void neverSplitsOnASingleProcessor() {
+		assertThat(CatalogueScanPool.defaultThreshold(1, 8192)).isEqualTo(Integer.MAX_VALUE);
+	}
+
+	@Test
+	void splitsFromTwoChunksOnSeveralProcessors() {
+		assertThat(CatalogueScanPool.defaultThreshold(2, 8192)).isEqualTo(16384);
+		assertThat(CatalogueScanPool.defaultThreshold(16, 100)).isEqualTo(200);
+		assertThat(CatalogueScanPool.defaultThreshold(4, Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+	}
+
+	@Test
+	void findsTheSameBooksAsASequentialScan() {
+		List<BookSummary> books = new ArrayList<>();
+		for (int id = 1; id <= 100; id++) {
+			books.add(new BookSummary(id, id % 7 == 0 ? "The Wizard " + id : "Book " + id, "Author " + id % 10,
+					null, id % 5 == 0 ? "a wizard's tale" : null, id));
+		}
+		CatalogueSnapshot snapshot = CatalogueSnapshot.of(books)
+				.with(new BookSummary(3, "Wizardry", null, null, null, 3));
+
+		CatalogueScanPool pool = new CatalogueScanPool(2, 1, 8);
+		try {
+			// 14 names and 20 descriptions, 2 books with both, and book 3 from the delta
+			assertThat(pool.search(snapshot, "wizard", weights, SubstringMatcher.SCALAR))
+					.isEqualTo(snapshot.search("wizard", weights))
+					.hasSize(33);
+		} finally {
+			pool.close();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.model.BookField;
+
+/**
+ * Checks how a segment maps the occurrences of a token in its arena back to
+ * rows and fields.
+ */
+class CatalogueSegmentTest {
+
+	private static final int NAME = BookField.NAME.mask();
+	private static final int AUTHOR = BookField.AUTHOR.mask();
+	private static final int DESCRIPTION = BookField.DESCRIPTION.mask();
+
+	@Test
+	void skipsAnOccurrenceSpanningTwoValues() {
+		CatalogueSegment segment = segment(new BookSummary(1, "ab", "cd", null, null, 0));
+
+		assertThat(rowsContaining(segment, "bc")).isEmpty();
+		assertThat(rowsContaining(segment, "ab")).containsExactly(Map.entry(0, NAME));
+		assertThat(rowsContaining(segment, "cd")).containsExactly(Map.entry(0, AUTHOR));
+	}
+
+	@Test
+	void resumesAfterAnOccurrenceSpanningTwoValues() {
+		// "bc" first occurs across the name and the author, then inside the author
+		CatalogueSegment segment = segment(new BookSummary(1, "ab", "cbc", null, null, 0),
+				new BookSummary(2, "xbc", null, null, null, 0));
+
+		assertThat(rowsContaining(segment, "bc")).containsExactly(Map.entry(0, AUTHOR), Map.entry(1, NAME));
+	}
+
+	@Test
+	void skipsEmptyAndNullColumns() {
+		CatalogueSegment segment = segment(new BookSummary(1, "", null, null, "Dune", 10),
+				new BookSummary(2, null, null, null, null, 20),
+				new BookSummary(3, "Dune", "", "", "dune messiah", 30));
+
+		assertThat(rowsContaining(segment, "dune")).containsExactly(Map.entry(0, DESCRIPTION),
+				Map.entry(2, NAME | DESCRIPTION));
+		assertThat(segment.summary(0)).isEqualTo(new BookSummary(1, "", null, null, "Dune", 10));
+		assertThat(segment.summary(1)).isEqualTo(new BookSummary(2, null, null, null, null, 20));
+		assertThat(segment.summary(2)).isEqualTo(new BookSummary(3, "Dune", "", "", "dune messiah", 30));
+	}
+
+	@Test
+	void doesNotSearchTheCategory() {
+		CatalogueSegment segment = segment(new BookSummary(1, "Dune", "Herbert", "wizardry", "sand", 0));
+
+		assertThat(rowsContaining(segment, "wizard")).isEmpty();
+	}
+
+	@Test
+	void searchesTheNormalizedText() {
+		CatalogueSegment segment = segment(new BookSummary(1, "Les Misérables", "Victor  HUGO", null, null, 0));
+
+		assertThat(rowsContaining(segment, "miserables")).containsExactly(Map.entry(0, NAME));
+		assertThat(rowsContaining(segment, "victor hugo")).containsExactly(Map.entry(0, AUTHOR));
+		assertThat(segment.column(0, CatalogueSegment.NAME)).isEqualTo("Les Misérables");
+	}
+
+	@Test
+	void onlyVisitsTheGivenRange() {
+		CatalogueSegment segment = segment(new BookSummary(1, "dune", null, null, null, 0),
+				new BookSummary(2, "dune", null, null, null, 0), new BookSummary(3, "dune", null, null, null, 0),
+				new BookSummary(4, null, null, null, "the end is dune", 0));
+
+		Map<Integer, Integer> rows = new LinkedHashMap<>();
+		segment.forEachRowContaining(1, 3, bytes("dune"), SubstringMatcher.SCALAR, rows::put);
+		assertThat(rows).containsExactly(Map.entry(1, NAME), Map.entry(2, NAME));
+
+		rows.clear();
+		segment.forEachRowContaining(3, 4, bytes("dune"), SubstringMatcher.SCALAR, rows::put);
+		assertThat(rows).containsExactly(Map.entry(3, DESCRIPTION));
+	}
+
+	@Test
+	void reportsTheFieldsOfARow() {
+		CatalogueSegment segment = segment(new BookSummary(1, "Dune", "Frank Herbert", null, "Dune, the novel", 0));
+
+		assertThat(segment.fieldsContaining(0, bytes("dune"), SubstringMatcher.SCALAR)).isEqualTo(NAME | DESCRIPTION);
+		assertThat(segment.fieldsContaining(0, bytes("herbert"), SubstringMatcher.SCALAR)).isEqualTo(AUTHOR);
+		assertThat(segment.fieldsContaining(0, bytes("dunef"), SubstringMatcher.SCALAR)).isZero();
+	}
+
+	private static CatalogueSegment segment(BookSummary... books) {
+		CatalogueSegment.Builder builder = new CatalogueSegment.Builder(books.length);
+		for (BookSummary book : books) {
+			builder.add(book);
+		}
+		return builder.build();
+	}
+
+	private static Map<Integer, Integer> rowsContaining(CatalogueSegment segment, String token) {
+		Map<Integer, Integer> rows = new LinkedHashMap<>();
+		segment.forEachRowContaining(0, segment.size(), bytes(token), SubstringMatcher.SCALAR, rows::put);
+		return rows;
+	}
+
+	private static byte[] bytes(String token) {
+		return token.getBytes(StandardCharsets.UTF_8);
+	}
+}
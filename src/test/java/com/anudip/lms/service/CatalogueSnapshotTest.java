@@ -0,0 +1,136 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.anudip.lms.dto.BookSummary;
+
+/**
+ * Checks that saving and removing books on a snapshot hides their old rows,
+ * and that compacting it keeps the same books.
+ */
+class CatalogueSnapshotTest {
+
+	private final double[] weights = { 3.0, 2.0, 1.0 };
+
+	private final CatalogueSnapshot base = CatalogueSnapshot.of(List.of(
+			new BookSummary(1, "Dune", "Frank Herbert", "Fiction", "Spice and sand", 100),
+			new BookSummary(2, "The Hobbit", "J. R. R. Tolkien", "Fantasy", "A wizard and a dragon", 200),
+			new BookSummary(3, "Harry Potter", "J. K. Rowling", "Fantasy", "A young wizard", 300)));
+
+	@Test
+	void savedBookShadowsItsOldRow() {
+		CatalogueSnapshot snapshot = base.with(new BookSummary(2, "The Silmarillion", "J. R. R. Tolkien", null, null, 250));
+
+		assertThat(snapshot.size()).isEqualTo(3);
+		assertThat(snapshot.deltaSize()).isEqualTo(1);
+		assertThat(snapshot.get(2).name()).isEqualTo("The Silmarillion");
+		assertThat(ids(snapshot.search("hobbit", weights))).isEmpty();
+		assertThat(ids(snapshot.search("silmarillion", weights))).containsExactly(2);
+		assertThat(ids(snapshot.search("wizard", weights))).containsExactly(3);
+		assertThat(ids(snapshot.search("tolkien", weights))).containsExactly(2);
+
+		// the snapshot it was derived from does not change
+		assertThat(base.get(2).name()).isEqualTo("The Hobbit");
+		assertThat(ids(base.search("hobbit", weights))).containsExactly(2);
+	}
+
+	@Test
+	void savingTheSameBookTwiceKeepsOneRow() {
+		CatalogueSnapshot snapshot = base.with(new BookSummary(4, "Emma", "Jane Austen", null, null, 0))
+				.with(new BookSummary(4, "Persuasion", "Jane Austen", null, null, 0));
+
+		assertThat(snapshot.size()).isEqualTo(4);
+		assertThat(snapshot.deltaSize()).isEqualTo(1);
+		assertThat(ids(snapshot.search("austen", weights))).containsExactly(4);
+		assertThat(ids(snapshot.search("emma", weights))).isEmpty();
+	}
+
+	@Test
+	void removedBookIsNotFound() {
+		CatalogueSnapshot snapshot = base.with(new BookSummary(5, "Wizard of Earthsea", null, null, null, 0))
+				.without(3)
+				.without(5);
+
+		assertThat(snapshot.size()).isEqualTo(2);
+		assertThat(snapshot.contains(3)).isFalse();
+		assertThat(snapshot.get(3)).isNull();
+		assertThat(snapshot.contains(5)).isFalse();
+		assertThat(ids(snapshot.search("wizard", weights))).containsExactly(2);
+		assertThat(ids(snapshot.search("3", weights))).isEmpty();
+	}
+
+	@Test
+	void removingAMissingBookKeepsTheSnapshot() {
+		assertThat(base.without(42)).isSameAs(base);
+		assertThat(base.without(2).without(2).size()).isEqualTo(2);
+	}
+
+	@Test
+	void appliesABatchOfChangesAndCompacts() {
+		CatalogueSnapshot snapshot = base.with(new BookSummary(6, "Sabriel", null, null, null, 0))
+				.withChanges(List.of(new BookSummary(1, "Dune Messiah", "Frank Herbert", null, null, 110),
+						new BookSummary(7, "Mort", "Terry Pratchett", null, "Death takes an apprentice", 0)),
+						Set.of(2, 6, 99));
+
+		assertThat(snapshot.deltaSize()).isZero();
+		assertThat(books(snapshot)).containsExactly(
+				new BookSummary(1, "Dune Messiah", "Frank Herbert", null, null, 110),
+				new BookSummary(3, "Harry Potter", "J. K. Rowling", "Fantasy", "A young wizard", 300),
+				new BookSummary(7, "Mort", "Terry Pratchett", null, "Death takes an apprentice", 0));
+		assertThat(ids(snapshot.search("messiah", weights))).containsExactly(1);
+		assertThat(ids(snapshot.search("sand", weights))).isEmpty();
+	}
+
+	@Test
+	void compactingKeepsTheSameBooks() {
+		CatalogueSnapshot snapshot = base.with(new BookSummary(0, "Beowulf", null, null, "a dragon", 0))
+				.with(new BookSummary(2, "The Hobbit", "J. R. R. Tolkien", "Fantasy", "A wizard, a dragon", 210))
+				.without(1);
+		CatalogueSnapshot compacted = snapshot.compact();
+
+		assertThat(compacted.deltaSize()).isZero();
+		assertThat(books(compacted)).isEqualTo(books(snapshot)).extracting(BookSummary::id).containsExactly(0, 2, 3);
+		assertThat(compacted.search("dragon", weights)).isEqualTo(snapshot.search("dragon", weights));
+		assertThat(compacted.compact()).isSameAs(compacted);
+	}
+
+	@Test
+	void ranksByTheHeaviestFieldOfEachToken() {
+		List<BookMatch> matches = base.search("wizard tolkien", weights);
+
+		assertThat(matches).containsExactly(new BookMatch(2, 2 | 4, 2.0 + 1.0));
+	}
+
+	@Test
+	void completesAWordFromTheBooksThatHaveIt() {
+		CatalogueSnapshot snapshot = base.with(new BookSummary(4, "Wizards", "Terry Pratchett", null, "wizard", 0))
+				.with(new BookSummary(5, "Wizardry", null, null, "more wizardry", 0));
+
+		assertThat(snapshot.complete("wizard", 10, SubstringMatcher.SCALAR))
+				.containsExactly("wizard", "wizardry", "wizards");
+		assertThat(snapshot.complete("wiz", 2, SubstringMatcher.SCALAR)).containsExactly("wizard", "wizardry");
+		assertThat(snapshot.complete("izard", 10, SubstringMatcher.SCALAR)).isEmpty();
+		assertThat(snapshot.without(3).without(2).without(4).complete("wizard", 10, SubstringMatcher.SCALAR))
+				.containsExactly("wizardry");
+	}
+
+	private static List<Integer> ids(List<BookMatch> matches) {
+		List<Integer> ids = new ArrayList<>();
+		for (BookMatch match : matches) {
+			ids.add(match.bookId());
+		}
+		return ids;
+	}
+
+	private static List<BookSummary> books(CatalogueSnapshot snapshot) {
+		List<BookSummary> books = new ArrayList<>();
+		snapshot.forEach(books::add);
+		return books;
+	}
+}
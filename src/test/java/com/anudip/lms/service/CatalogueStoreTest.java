@@ -0,0 +1,154 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.anudip.lms.dto.BookSummary;
+import com.anudip.lms.repository.BookRepository;
+import com.anudip.lms.repository.BookTombstoneRepository;
+
+/**
+ * Checks that a catalogue written to a segment file reads back the same, and
+ * that a damaged file is ignored.
+ */
+class CatalogueStoreTest {
+
+	private static final List<BookSummary> BOOKS = List.of(
+			new BookSummary(1, "Les Misérables", "Victor Hugo", "Classics", null, 450),
+			new BookSummary(2, "Dune", "Frank Herbert", null, "Spice and sand", 399),
+			new BookSummary(3, "", null, "", "A book without a title", 0));
+
+	@TempDir
+	Path directory;
+
+	private final BookRepository bookRepository = mock(BookRepository.class);
+
+	private final BookTombstoneRepository bookTombstoneRepository = mock(BookTombstoneRepository.class);
+
+	@Test
+	void readsBackTheCatalogueItWrote() {
+		Path path = directory.resolve("catalogue.seg");
+		when(bookRepository.findAllSummaries()).thenReturn(BOOKS);
+		store(path).load();
+		assertThat(path).isRegularFile();
+
+		BookRepository books = mock(BookRepository.class);
+		when(books.count()).thenReturn((long) BOOKS.size());
+		CatalogueSnapshot snapshot = store(path, books, mock(BookTombstoneRepository.class)).load();
+
+		verify(books, never()).findAllSummaries();
+		assertThat(books(snapshot)).isEqualTo(BOOKS);
+		assertThat(snapshot.search("miserables", new double[] { 3.0, 2.0, 1.0 }))
+				.extracting(BookMatch::bookId)
+				.containsExactly(1);
+	}
+
+	@Test
+	void catchesUpWithTheChangesSinceTheFileWasWritten() {
+		Path path = directory.resolve("catalogue.seg");
+		when(bookRepository.findAllSummaries()).thenReturn(BOOKS);
+		store(path).load();
+
+		BookRepository books = mock(BookRepository.class);
+		BookTombstoneRepository tombstones = mock(BookTombstoneRepository.class);
+		when(books.findSummariesUpdatedAfter(any())).thenReturn(List.of(new BookSummary(2, "Dune Messiah",
+				"Frank Herbert", null, null, 420), new BookSummary(4, "Emma", "Jane Austen", null, null, 250)));
+		when(tombstones.findBookIdsDeletedAfter(any())).thenReturn(List.of(3));
+		when(books.count()).thenReturn(3L);
+		CatalogueSnapshot snapshot = store(path, books, tombstones).load();
+
+		verify(books, never()).findAllSummaries();
+		assertThat(books(snapshot)).extracting(BookSummary::name)
+				.containsExactly("Les Misérables", "Dune Messiah", "Emma");
+
+		// the caught up catalogue was written back
+		BookRepository unchanged = mock(BookRepository.class);
+		when(unchanged.count()).thenReturn(3L);
+		assertThat(books(store(path, unchanged, mock(BookTombstoneRepository.class)).load()))
+				.isEqualTo(books(snapshot));
+	}
+
+	@Test
+	void ignoresAFileWithAWrongChecksum() throws IOException {
+		Path path = directory.resolve("catalogue.seg");
+		when(bookRepository.findAllSummaries()).thenReturn(BOOKS);
+		store(path).load();
+		byte[] file = Files.readAllBytes(path);
+		file[file.length - 1] ^= 1;
+		Files.write(path, file);
+
+		BookRepository books = mock(BookRepository.class);
+		when(books.findAllSummaries()).thenReturn(BOOKS.subList(0, 2));
+		when(books.count()).thenReturn(3L);
+		CatalogueSnapshot snapshot = store(path, books, mock(BookTombstoneRepository.class)).load();
+
+		verify(books).findAllSummaries();
+		assertThat(books(snapshot)).isEqualTo(BOOKS.subList(0, 2));
+	}
+
+	@Test
+	void ignoresAFileWithADamagedHeader() throws IOException {
+		Path path = directory.resolve("catalogue.seg");
+		when(bookRepository.findAllSummaries()).thenReturn(BOOKS);
+		store(path).load();
+		byte[] file = Files.readAllBytes(path);
+		// a stamp decades ahead, which the sizes cannot reveal
+		file[13] ^= 2;
+		Files.write(path, file);
+
+		BookRepository books = mock(BookRepository.class);
+		when(books.findAllSummaries()).thenReturn(BOOKS.subList(0, 2));
+		when(books.count()).thenReturn(3L);
+		CatalogueSnapshot snapshot = store(path, books, mock(BookTombstoneRepository.class)).load();
+
+		verify(books).findAllSummaries();
+		assertThat(books(snapshot)).isEqualTo(BOOKS.subList(0, 2));
+	}
+
+	@Test
+	void ignoresAFileWithADifferentNumberOfBooks() {
+		Path path = directory.resolve("catalogue.seg");
+		when(bookRepository.findAllSummaries()).thenReturn(BOOKS);
+		store(path).load();
+
+		BookRepository books = mock(BookRepository.class);
+		when(books.findAllSummaries()).thenReturn(BOOKS.subList(0, 1));
+		when(books.count()).thenReturn(1L);
+		CatalogueSnapshot snapshot = store(path, books, mock(BookTombstoneRepository.class)).load();
+
+		verify(books).findAllSummaries();
+		assertThat(books(snapshot)).isEqualTo(BOOKS.subList(0, 1));
+	}
+
+	private CatalogueStore store(Path path) {
+		return store(path, bookRepository, bookTombstoneRepository);
+	}
+
+	private static CatalogueStore store(Path path, BookRepository books, BookTombstoneRepository tombstones) {
+		CatalogueStore store = new CatalogueStore(path.toString(), Duration.ofMinutes(5), Duration.ofDays(7));
+		ReflectionTestUtils.setField(store, "bookRepository", books);
+		ReflectionTestUtils.setField(store, "bookTombstoneRepository", tombstones);
+		return store;
+	}
+
+	private static List<BookSummary> books(CatalogueSnapshot snapshot) {
+		List<BookSummary> books = new ArrayList<>();
+		snapshot.forEach(books::add);
+		return books;
+	}
+}
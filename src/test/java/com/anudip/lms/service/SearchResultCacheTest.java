@@ -0,0 +1,187 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which cached results a change to a book drops, and which entries a
+ * full cache evicts.
+ */
+class SearchResultCacheTest {
+
+	private final List<BookMatch> result = List.of(new BookMatch(1, 1, 1.0));
+
+	private SearchResultCache cache;
+
+	@BeforeEach
+	void setUp() {
+		cache = new SearchResultCache(100, SearchResultCache.EvictionPolicy.LRU);
+		for (String keyword : List.of("dune", "dun", "harry potter", "pottr", "hobbit", "42", "otter")) {
+			cache.put(keyword, result, cache.generation());
+		}
+	}
+
+	@Test
+	void dropsTheKeywordsTheBookCouldMatch() {
+		cache.invalidate(7, Set.of(), Set.of("harry", "potter", "dune"));
+
+		// exact, prefix of the last token, and a typo sharing the first character
+		assertThat(cache.get("dune")).isNull();
+		assertThat(cache.get("dun")).isNull();
+		assertThat(cache.get("Harry  POTTER")).isNull();
+		assertThat(cache.get("pottr")).isNull();
+
+		// unrelated words, other ids, and a typo in the first character
+		assertThat(cache.get("hobbit")).isEqualTo(result);
+		assertThat(cache.get("42")).isEqualTo(result);
+		assertThat(cache.get("otter")).isEqualTo(result);
+	}
+
+	@Test
+	void dropsTheKeywordsTheBookMatchedBeforeTheChange() {
+		cache.invalidate(7, Set.of("hobbit"), Set.of("dune"));
+
+		assertThat(cache.get("hobbit")).isNull();
+		assertThat(cache.get("dune")).isNull();
+		assertThat(cache.get("harry potter")).isEqualTo(result);
+	}
+
+	@Test
+	void dropsAnIdQueryOnlyForItsBook() {
+		cache.invalidate(41, Set.of(), Set.of());
+		assertThat(cache.get("42")).isEqualTo(result);
+
+		cache.invalidate(42, Set.of(), Set.of());
+		assertThat(cache.get("42")).isNull();
+	}
+
+	@Test
+	void rejectsAResultComputedBeforeAnInvalidation() {
+		long generation = cache.generation();
+		cache.invalidate(7, Set.of(), Set.of("tolkien"));
+		cache.put("tolkien", result, generation);
+
+		assertThat(cache.get("tolkien")).isNull();
+	}
+
+	@Test
+	void rejectsAResultComputedBeforeAnyKindOfInvalidation() {
+		// even a change to a book the keyword cannot match, as it is not checked
+		long generation = cache.generation();
+		cache.invalidate(8, "emma\njane austen\n\n", "");
+		cache.put("tolkien", result, generation);
+		assertThat(cache.get("tolkien")).isNull();
+
+		generation = cache.generation();
+		cache.clear();
+		cache.put("tolkien", result, generation);
+		assertThat(cache.get("tolkien")).isNull();
+
+		cache.put("tolkien", result, cache.generation());
+		assertThat(cache.get("tolkien")).isEqualTo(result);
+	}
+
+	@Test
+	void keysIdQueriesByTheirNumber() {
+		List<BookMatch> book = List.of(new BookMatch(42, 0, 0));
+		cache.put("042", book, cache.generation());
+
+		assertThat(cache.get("42")).isEqualTo(book);
+		assertThat(cache.get("+42")).isEqualTo(book);
+		assertThat(SearchResultCache.normalize(" 42")).isEqualTo("42");
+		assertThat(SearchResultCache.normalize("-7")).isEqualTo("#-7");
+	}
+
+	@Test
+	void keepsIdQueriesApartFromKeywordsThatLookLikeThem() {
+		List<BookMatch> book = List.of(new BookMatch(42, 0, 0));
+		cache.put("#42", book, cache.generation());
+
+		// "#42" is a keyword query for the token "42", not the id query
+		assertThat(cache.get("42")).isEqualTo(result);
+		assertThat(cache.get("#42")).isEqualTo(book);
+
+		cache.invalidate(42, Set.of(), Set.of());
+		assertThat(cache.get("42")).isNull();
+		assertThat(cache.get("#42")).isEqualTo(book);
+
+		cache.invalidate(9, Set.of(), Set.of("42"));
+		assertThat(cache.get("#42")).isNull();
+	}
+
+	@Test
+	void dropsAnIdQueryOnlyForItsBookWhenScanning() {
+		cache.invalidate(41, "42\n\n\n", "");
+		assertThat(cache.get("42")).isEqualTo(result);
+
+		cache.invalidate(42, "", "");
+		assertThat(cache.get("42")).isNull();
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() {
+		SearchResultCache lru = new SearchResultCache(3, SearchResultCache.EvictionPolicy.LRU);
+		lru.put("dune", result, lru.generation());
+		lru.put("emma", result, lru.generation());
+		lru.put("hobbit", result, lru.generation());
+		lru.get("dune");
+		lru.get("dune");
+		lru.get("emma");
+
+		lru.put("mort", result, lru.generation());
+
+		assertThat(lru.get("hobbit")).isNull();
+		assertThat(lru.get("dune")).isEqualTo(result);
+		assertThat(lru.get("emma")).isEqualTo(result);
+		assertThat(lru.get("mort")).isEqualTo(result);
+	}
+
+	@Test
+	void evictsTheLeastFrequentlyUsedEntry() {
+		SearchResultCache lfu = new SearchResultCache(3, SearchResultCache.EvictionPolicy.LFU);
+		lfu.put("dune", result, lfu.generation());
+		lfu.put("emma", result, lfu.generation());
+		lfu.put("hobbit", result, lfu.generation());
+		lfu.get("dune");
+		lfu.get("dune");
+		lfu.get("hobbit");
+
+		// emma was read least often, however recently it was written
+		lfu.put("mort", result, lfu.generation());
+		assertThat(lfu.get("emma")).isNull();
+
+		// mort and hobbit tie on frequency once mort is read; hobbit is older
+		lfu.get("mort");
+		lfu.put("sabriel", result, lfu.generation());
+		assertThat(lfu.get("hobbit")).isNull();
+		assertThat(lfu.get("dune")).isEqualTo(result);
+		assertThat(lfu.get("mort")).isEqualTo(result);
+		assertThat(lfu.get("sabriel")).isEqualTo(result);
+	}
+
+	@Test
+	void replacesAnEntryWithoutEvicting() {
+		SearchResultCache lfu = new SearchResultCache(2, SearchResultCache.EvictionPolicy.LFU);
+		lfu.put("dune", result, lfu.generation());
+		lfu.put("emma", result, lfu.generation());
+		List<BookMatch> other = List.of(new BookMatch(2, 1, 2.0));
+
+		lfu.put("Dune", other, lfu.generation());
+
+		assertThat(lfu.get("dune")).isEqualTo(other);
+		assertThat(lfu.get("emma")).isEqualTo(result);
+	}
+
+	@Test
+	void cachesNothingWithoutEntries() {
+		SearchResultCache disabled = new SearchResultCache(0, SearchResultCache.EvictionPolicy.LRU);
+		disabled.put("dune", result, disabled.generation());
+
+		assertThat(disabled.get("dune")).isNull();
+	}
+}
@@ -0,0 +1,114 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.anudip.lms.dto.BookSummary;
+
+/**
+ * Checks that a page of the ranking is the same as that page of a full sort,
+ * and how BM25F orders books matched in different fields.
+ */
+class SearchTest {
+
+	/** Descending score, then ascending id, as {@link Search} ranks. */
+	private static final Comparator<BookMatch> FULL_SORT = Comparator.comparingDouble(BookMatch::score).reversed()
+			.thenComparingInt(BookMatch::bookId);
+
+	@Test
+	void selectsTheSamePageAsAFullSort() {
+		Random random = new Random(7);
+		for (int run = 0; run < 200; run++) {
+			List<BookMatch> matches = new ArrayList<>();
+			int count = random.nextInt(60);
+			for (int i = 0; i < count; i++) {
+				// few distinct scores, so that many matches tie
+				matches.add(new BookMatch(random.nextInt(1000), 1, random.nextInt(5) / 2.0));
+			}
+			List<BookMatch> sorted = new ArrayList<>(matches);
+			sorted.sort(FULL_SORT);
+
+			for (int[] page : new int[][] { { 0, 10 }, { 0, count }, { 3, 4 }, { count - 1, 5 }, { count, 1 },
+					{ count + 5, 10 }, { 0, Integer.MAX_VALUE }, { 2, Integer.MAX_VALUE } }) {
+				int offset = Math.max(0, page[0]);
+				int limit = page[1];
+				List<BookMatch> expected = sorted.subList(Math.min(offset, count),
+						(int) Math.min((long) offset + limit, count));
+
+				assertThat(Search.top(matches, offset, limit)).as("offset %d, limit %d of %d", offset, limit, count)
+						.isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	void breaksTiesByAscendingId() {
+		List<BookMatch> matches = List.of(new BookMatch(9, 1, 1.0), new BookMatch(3, 1, 2.0),
+				new BookMatch(5, 1, 1.0), new BookMatch(1, 1, 1.0), new BookMatch(7, 1, 2.0));
+
+		assertThat(Search.top(matches, 0, 10)).extracting(BookMatch::bookId).containsExactly(3, 7, 1, 5, 9);
+		assertThat(Search.top(matches, 1, 2)).extracting(BookMatch::bookId).containsExactly(7, 1);
+	}
+
+	@Test
+	void returnsNothingForAnEmptyPage() {
+		List<BookMatch> matches = List.of(new BookMatch(1, 1, 1.0), new BookMatch(2, 1, 2.0));
+
+		assertThat(Search.top(matches, 0, 0)).isEmpty();
+		assertThat(Search.top(matches, 2, 10)).isEmpty();
+		assertThat(Search.top(matches, Integer.MAX_VALUE, Integer.MAX_VALUE)).isEmpty();
+		assertThat(Search.top(matches, -1, 10)).isEmpty();
+		assertThat(Search.top(List.of(), 0, 10)).isEmpty();
+	}
+
+	@Test
+	void ranksANameMatchAboveADescriptionMatch() {
+		assertThat(rank("dragon", new BookSummary(1, "A History of Fire", null, null, "Of a dragon", 0),
+				new BookSummary(2, "The Dragon", null, null, null, 0),
+				new BookSummary(3, "Fire", "Sam Dragon", null, null, 0))).containsExactly(2, 3, 1);
+	}
+
+	@Test
+	void ranksAShortFieldAboveALongOne() {
+		assertThat(rank("dune", new BookSummary(1, "The Road to Dune and Other Essays on the Desert", null, null, null, 0),
+				new BookSummary(2, "Dune", null, null, null, 0))).containsExactly(2, 1);
+	}
+
+	@Test
+	void ranksARepeatedMatchAboveASingleOne() {
+		assertThat(rank("spice", new BookSummary(1, "Sand", null, null, "sand and spice and wind", 0),
+				new BookSummary(2, "Sand", null, null, "spice and spice and wind", 0))).containsExactly(2, 1);
+	}
+
+	@Test
+	void weighsTheRarerTokenMore() {
+		// both books have one token in the name and the other in the description,
+		// but only they have "dragon" while every book has "wizard"
+		assertThat(rank("wizard dragon", new BookSummary(1, "Wizard", null, null, "dragon", 0),
+				new BookSummary(2, "Dragon", null, null, "wizard", 0),
+				new BookSummary(3, "Wizard Tales", null, null, null, 0),
+				new BookSummary(4, "Wizard Lore", null, null, null, 0),
+				new BookSummary(5, "Wizard Wars", null, null, null, 0))).containsExactly(2, 1);
+	}
+
+	/** Returns the ids of the given books that match the keyword, best first. */
+	private static List<Integer> rank(String keyword, BookSummary... books) {
+		BookIndex index = new BookIndex();
+		index.setNameWeight(3.0);
+		index.setAuthorWeight(2.0);
+		index.setDescriptionWeight(1.0);
+		index.rebuild(CatalogueSnapshot.of(List.of(books)));
+
+		List<Integer> ids = new ArrayList<>();
+		for (BookMatch match : Search.top(index.search(keyword), 0, Integer.MAX_VALUE)) {
+			ids.add(match.bookId());
+		}
+		return ids;
+	}
+}
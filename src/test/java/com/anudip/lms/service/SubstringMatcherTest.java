@@ -0,0 +1,105 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.incubator.vector.ByteVector;
+
+/**
+ * Checks that the vector matcher finds the same positions as the scalar one,
+ * in particular around the edges of its blocks and of the searched range.
+ */
+class SubstringMatcherTest {
+
+	private final SubstringMatcher vector = new VectorSubstringMatcher();
+
+	private final int lanes = ByteVector.SPECIES_PREFERRED.length();
+
+	@Test
+	void findsTheTokenAtEveryPositionOfABlock() {
+		byte[] token = bytes("wizard");
+		for (int length = token.length; length <= 3 * lanes + token.length; length++) {
+			for (int at = 0; at + token.length <= length; at++) {
+				byte[] text = new byte[length];
+				Arrays.fill(text, (byte) 'w');
+				System.arraycopy(token, 0, text, at, token.length);
+
+				assertThat(vector.indexOf(text, 0, length, token)).as("at %d of %d", at, length).isEqualTo(at);
+			}
+		}
+	}
+
+	@Test
+	void doesNotFindATokenCrossingTheEndOfTheRange() {
+		byte[] text = new byte[4 * lanes];
+		Arrays.fill(text, (byte) 'a');
+		byte[] token = bytes("ab");
+		for (int to = 2; to < text.length; to++) {
+			text[to] = 'b';
+
+			assertThat(vector.indexOf(text, 0, to, token)).as("to %d", to).isEqualTo(-1);
+			assertThat(vector.indexOf(text, 0, to + 1, token)).as("to %d", to + 1).isEqualTo(to - 1);
+			text[to] = 'a';
+		}
+	}
+
+	@Test
+	void findsNothingBeforeTheStartOfTheRange() {
+		byte[] text = bytes("dune ".repeat(2 * lanes));
+
+		for (int from = 0; from < text.length; from++) {
+			int expected = SubstringMatcher.SCALAR.indexOf(text, from, text.length, bytes("dune"));
+			assertThat(vector.indexOf(text, from, text.length, bytes("dune"))).as("from %d", from).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void agreesWithTheScalarMatcherOnRandomText() {
+		// a small alphabet, with a two-byte letter, so that tokens occur often
+		byte[] alphabet = bytes("abé ");
+		Random random = new Random(42);
+		for (int run = 0; run < 20_000; run++) {
+			byte[] text = new byte[random.nextInt(200)];
+			for (int i = 0; i < text.length; i++) {
+				text[i] = alphabet[random.nextInt(alphabet.length)];
+			}
+			byte[] token = new byte[1 + random.nextInt(random.nextBoolean() ? 4 : 40)];
+			int source = random.nextInt(Math.max(1, text.length - token.length + 1));
+			for (int j = 0; j < token.length; j++) {
+				token[j] = source + j < text.length && random.nextInt(8) > 0 ? text[source + j]
+						: alphabet[random.nextInt(alphabet.length)];
+			}
+			int from = random.nextInt(text.length + 1);
+			int to = from + random.nextInt(text.length - from + 1);
+
+			assertThat(vector.indexOf(text, from, to, token))
+					.as("%s in [%d, %d) of %s", Arrays.toString(token), from, to, Arrays.toString(text))
+					.isEqualTo(SubstringMatcher.SCALAR.indexOf(text, from, to, token));
+		}
+	}
+
+	@Test
+	void findsAnEmptyTokenAtTheStartOfTheRange() {
+		byte[] text = bytes("dune");
+
+		assertThat(vector.indexOf(text, 1, 3, new byte[0])).isEqualTo(1);
+		assertThat(vector.indexOf(text, 4, 4, new byte[0])).isEqualTo(4);
+	}
+
+	@Test
+	void looksUpMatchersByName() {
+		assertThat(SubstringMatcher.named("scalar")).isSameAs(SubstringMatcher.SCALAR);
+		assertThat(SubstringMatcher.named(" Vector ")).isInstanceOf(VectorSubstringMatcher.class);
+		assertThatIllegalArgumentException().isThrownBy(() -> SubstringMatcher.named("simd"));
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
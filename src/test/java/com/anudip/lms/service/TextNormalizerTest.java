@@ -0,0 +1,66 @@
+package com.anudip.lms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that keywords and books written differently normalize to the same
+ * text.
+ */
+class TextNormalizerTest {
+
+	@Test
+	void dropsAccents() {
+		assertThat(TextNormalizer.normalize("Hárry")).isEqualTo("harry");
+		assertThat(TextNormalizer.normalize("Les Misérables")).isEqualTo("les miserables");
+		assertThat(TextNormalizer.normalize("Ångström Čapek Naïve")).isEqualTo("angstrom capek naive");
+	}
+
+	@Test
+	void dropsAlreadyDecomposedAccents() {
+		assertThat(TextNormalizer.normalize("Ha\u0301rry")).isEqualTo("harry");
+	}
+
+	@Test
+	void splitsLigaturesAndFullWidthForms() {
+		assertThat(TextNormalizer.normalize("The ﬁrst ﬂight")).isEqualTo("the first flight");
+		assertThat(TextNormalizer.normalize("ＨＡＲＲＹ")).isEqualTo("harry");
+		assertThat(TextNormalizer.normalize("Chapter Ⅻ")).isEqualTo("chapter xii");
+	}
+
+	@Test
+	void foldsCase() {
+		assertThat(TextNormalizer.normalize("HARRY Potter")).isEqualTo("harry potter");
+		assertThat(TextNormalizer.normalize("ΟΔΥΣΣΕΥΣ")).isEqualTo(TextNormalizer.normalize("οδυσσευς"));
+	}
+
+	@Test
+	void collapsesAndTrimsWhitespace() {
+		assertThat(TextNormalizer.normalize("  Harry \t\n Potter  ")).isEqualTo("harry potter");
+		assertThat(TextNormalizer.normalize("harry\u00a0potter")).isEqualTo("harry potter");
+		assertThat(TextNormalizer.normalize("harry\u2003\u3000potter")).isEqualTo("harry potter");
+		assertThat(TextNormalizer.normalize(" \t ")).isEmpty();
+	}
+
+	@Test
+	void keepsDigitsAndPunctuation() {
+		assertThat(TextNormalizer.normalize("Catch-22, 1961")).isEqualTo("catch-22, 1961");
+	}
+
+	@Test
+	void returnsNormalizedTextAsItIs() {
+		String text = "harry potter and the goblet of fire";
+
+		assertThat(TextNormalizer.normalize(text)).isSameAs(text);
+		assertThat(TextNormalizer.normalize("")).isEmpty();
+		assertThat(TextNormalizer.normalize(null)).isNull();
+	}
+
+	@Test
+	void copiesTextWithSpacesToCollapse() {
+		assertThat(TextNormalizer.normalize("harry  potter")).isEqualTo("harry potter");
+		assertThat(TextNormalizer.normalize(" harry")).isEqualTo("harry");
+		assertThat(TextNormalizer.normalize("harry ")).isEqualTo("harry");
+	}
+}